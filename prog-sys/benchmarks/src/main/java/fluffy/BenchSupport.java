@@ -0,0 +1,46 @@
+package fluffy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+// Racine de documents temporaire et configuration minimale pour appeler RootHandler hors serveur
+final class BenchSupport {
+    private BenchSupport() {
+    }
+
+    static Path createDocumentRoot() throws IOException {
+        return Files.createTempDirectory("fluffy-bench");
+    }
+
+    static Properties config(Path documentRoot) {
+        Properties config = new Properties();
+        config.setProperty("document.root", documentRoot.toString());
+        config.setProperty("supported.extensions", "html,htm,php,txt,css,js");
+        config.setProperty("metrics.enabled", "false");
+        return config;
+    }
+
+    // Interpréteur factice : renvoie quelques lignes de HTML comme le ferait php script.php
+    static Path createStubInterpreter(Path directory) throws IOException {
+        Path stub = directory.resolve("php-stub.sh");
+        Files.writeString(stub, "#!/bin/sh\n"
+                + "echo '<html><body>'\n"
+                + "echo \"<p>$1</p>\"\n"
+                + "echo '</body></html>'\n");
+        Files.setPosixFilePermissions(stub, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return stub;
+    }
+
+    static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
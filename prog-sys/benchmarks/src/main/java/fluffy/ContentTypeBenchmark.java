@@ -0,0 +1,34 @@
+package fluffy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Résolution d'une requête avant tout accès disque : normalisation du chemin puis recherche du type
+// (traitement, type MIME, compressibilité) par extension
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ContentTypeBenchmark {
+    @Param({ "/index.html", "/some/dir/style.css", "/script.JS", "/notes.txt", "/page.php", "/archive.tar.gz",
+            "/a//b/./c/../page.html" })
+    public String path;
+
+    private RequestDispatch dispatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties config = new Properties();
+        config.setProperty("supported.extensions", "html,htm,php,txt,css,js");
+        dispatch = RequestDispatch.fromConfig(config);
+    }
+
+    @Benchmark
+    public RequestDispatch.FileType resolve() {
+        return dispatch.lookup(RequestDispatch.normalize(path));
+    }
+}
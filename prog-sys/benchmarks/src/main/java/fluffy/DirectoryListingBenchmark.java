@@ -0,0 +1,53 @@
+package fluffy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Page complète (?limit=0) d'un dossier de 10, 1 000 ou 100 000 entrées, avec ou sans cache des dossiers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DirectoryListingBenchmark {
+    @Param({ "10", "1000", "100000" })
+    public int entries;
+
+    @Param({ "true", "false" })
+    public boolean cache;
+
+    private Path root;
+    private NetworkHttpServer.RootHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = BenchSupport.createDocumentRoot();
+        Path dir = Files.createDirectory(root.resolve("dir"));
+        for (int i = 0; i < entries; i++) {
+            Files.createFile(dir.resolve(String.format("file%06d.txt", i)));
+        }
+
+        Properties config = BenchSupport.config(root);
+        config.setProperty("listing.cache.enabled", String.valueOf(cache));
+        NetworkHttpServer.configure(config);
+        handler = new NetworkHttpServer.RootHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchSupport.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public long list() throws IOException {
+        BenchExchange exchange = new BenchExchange("GET", "/dir/?limit=0");
+        handler.handle(exchange);
+        return exchange.getBytesWritten();
+    }
+}
@@ -0,0 +1,47 @@
+package fluffy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Requête PHP de bout en bout (un processus par requête) contre un interpréteur factice en shell
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PhpDispatchBenchmark {
+    private Path root;
+    private NetworkHttpServer.RootHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = BenchSupport.createDocumentRoot();
+        Files.writeString(root.resolve("index.php"), "<?php echo 'hello'; ?>\n");
+
+        Properties config = BenchSupport.config(root);
+        config.setProperty("php.interpreter", BenchSupport.createStubInterpreter(root).toString());
+        NetworkHttpServer.configure(config);
+        handler = new NetworkHttpServer.RootHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchSupport.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public long dispatch() throws IOException {
+        BenchExchange exchange = new BenchExchange("GET", "/index.php");
+        handler.handle(exchange);
+        if (exchange.getResponseCode() != 200) {
+            throw new IllegalStateException("PHP stub answered " + exchange.getResponseCode());
+        }
+        return exchange.getBytesWritten();
+    }
+}
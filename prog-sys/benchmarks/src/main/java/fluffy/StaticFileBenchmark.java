@@ -0,0 +1,56 @@
+package fluffy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Fichiers statiques servis par RootHandler : petit (1 Kio) ou gros (8 Mio), avec ou sans cache mémoire
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StaticFileBenchmark {
+    @Param({ "small", "large" })
+    public String file;
+
+    @Param({ "true", "false" })
+    public boolean cache;
+
+    private Path root;
+    private NetworkHttpServer.RootHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = BenchSupport.createDocumentRoot();
+        byte[] small = new byte[1024];
+        byte[] large = new byte[8 * 1024 * 1024];
+        Arrays.fill(small, (byte) 'a');
+        Arrays.fill(large, (byte) 'b');
+        Files.write(root.resolve("small.txt"), small);
+        Files.write(root.resolve("large.txt"), large);
+
+        Properties config = BenchSupport.config(root);
+        config.setProperty("static.cache.enabled", String.valueOf(cache));
+        NetworkHttpServer.configure(config);
+        handler = new NetworkHttpServer.RootHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchSupport.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public long serve() throws IOException {
+        BenchExchange exchange = new BenchExchange("GET", "/" + file + ".txt");
+        handler.handle(exchange);
+        return exchange.getBytesWritten();
+    }
+}
@@ -0,0 +1,473 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Journal des accès (Common, Combined ou JSON) et messages d'erreur des requêtes
+//
+// Les threads des requêtes déposent une entrée dans un anneau sans verrou et repartent aussitôt ;
+// si l'anneau est plein, l'entrée est perdue et comptée. Un thread d'arrière-plan vide l'anneau,
+// met en forme les lignes et les écrit par lots (une écriture par lot), puis fait tourner le fichier
+// selon sa taille ou l'heure.
+class AccessLog {
+    enum Format { COMMON, COMBINED, JSON }
+
+    enum Rotation { NONE, HOURLY, DAILY }
+
+    private static final DateTimeFormatter CLF_TIME =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+    private static final DateTimeFormatter ROTATED_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Au-delà, le lot en cours est écrit sans attendre la fin de l'anneau
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    // Requête terminée, mise en forme plus tard par le thread d'écriture
+    private static final class Entry {
+        final long timeMillis;
+        final String remoteAddress;
+        final String method;
+        final String uri;
+        final String protocol;
+        final int status;
+        final long bytes;
+        final long durationMicros;
+        final String referer;
+        final String userAgent;
+        // Message d'erreur à écrire sur la sortie d'erreur, à la place d'une ligne d'accès
+        final String message;
+
+        Entry(long timeMillis, String remoteAddress, String method, String uri, String protocol, int status,
+                long bytes, long durationMicros, String referer, String userAgent) {
+            this.timeMillis = timeMillis;
+            this.remoteAddress = remoteAddress;
+            this.method = method;
+            this.uri = uri;
+            this.protocol = protocol;
+            this.status = status;
+            this.bytes = bytes;
+            this.durationMicros = durationMicros;
+            this.referer = referer;
+            this.userAgent = userAgent;
+            this.message = null;
+        }
+
+        Entry(String message) {
+            this.timeMillis = System.currentTimeMillis();
+            this.remoteAddress = null;
+            this.method = null;
+            this.uri = null;
+            this.protocol = null;
+            this.status = 0;
+            this.bytes = 0;
+            this.durationMicros = 0;
+            this.referer = null;
+            this.userAgent = null;
+            this.message = message;
+        }
+    }
+
+    // Anneau borné multi-producteurs, un seul consommateur (séquences par case, à la Vyukov)
+    private static final class Ring {
+        private final Entry[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        // Lu et écrit uniquement par le thread d'écriture
+        private long head;
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            slots = new Entry[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+            mask = size - 1;
+        }
+
+        int capacity() {
+            return slots.length;
+        }
+
+        boolean offer(Entry entry) {
+            long position = tail.get();
+            while (true) {
+                int index = (int) (position & mask);
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots[index] = entry;
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (difference < 0) {
+                    // Case pas encore libérée par le consommateur : l'anneau est plein
+                    return false;
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        Entry poll() {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return null;
+            }
+            Entry entry = slots[index];
+            slots[index] = null;
+            sequences.set(index, head + slots.length);
+            head++;
+            return entry;
+        }
+    }
+
+    private final Path file;
+    private final Format format;
+    private final Rotation rotation;
+    private final long maxSize;
+    private final int maxFiles;
+    private final long flushIntervalNanos;
+    private final Ring ring;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // État du thread d'écriture
+    private FileChannel channel;
+    private long size;
+    private long nextRotation = Long.MAX_VALUE;
+    private long reportedDropped;
+    private long cachedSecond = -1;
+    private String cachedTime;
+
+    private AccessLog(Path file, Format format, Rotation rotation, long maxSize, int maxFiles, int capacity,
+            long flushIntervalMillis) throws IOException {
+        this.file = file;
+        this.format = format;
+        this.rotation = rotation;
+        this.maxSize = maxSize;
+        this.maxFiles = maxFiles;
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000L;
+        this.ring = new Ring(capacity);
+        if (file != null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            open();
+        }
+        writer = new Thread(this::writeLoop, "access-log");
+        writer.setDaemon(true);
+        writer.start();
+        // Les lignes encore dans l'anneau sont écrites à l'arrêt du serveur
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "access-log-shutdown"));
+    }
+
+    // Renvoie null si le journal est désactivé dans la configuration
+    static AccessLog fromConfig(Properties config) throws IOException {
+        if (!Boolean.parseBoolean(config.getProperty("access.log.enabled", "true").trim())) {
+            return null;
+        }
+        String fileName = config.getProperty("access.log.file", "logs/access.log").trim();
+        Format format = Format.valueOf(config.getProperty("access.log.format", "combined").trim().toUpperCase(Locale.ROOT));
+        Rotation rotation = Rotation.valueOf(config.getProperty("access.log.rotate", "daily").trim().toUpperCase(Locale.ROOT));
+        long maxSize = Long.parseLong(config.getProperty("access.log.max.size", "10485760").trim());
+        int maxFiles = Integer.parseInt(config.getProperty("access.log.max.files", "7").trim());
+        int capacity = Integer.parseInt(config.getProperty("access.log.buffer", "8192").trim());
+        long flushInterval = Long.parseLong(config.getProperty("access.log.flush.interval", "200").trim());
+        // "-" : sortie standard, sans rotation
+        return new AccessLog("-".equals(fileName) ? null : Paths.get(fileName), format, rotation, maxSize, maxFiles,
+                capacity, Math.max(1, flushInterval));
+    }
+
+    String describe() {
+        return "access log (" + (file != null ? file : "stdout") + ", " + format.name().toLowerCase(Locale.ROOT)
+                + ", " + ring.capacity() + " entries"
+                + (file != null && maxSize > 0 ? ", rotate at " + maxSize + " bytes" : "")
+                + (file != null && rotation != Rotation.NONE ? ", " + rotation.name().toLowerCase(Locale.ROOT) : "")
+                + ")";
+    }
+
+    long getWritten() {
+        return written.sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    // Journalise chaque requête du handler une fois la réponse terminée
+    HttpHandler wrap(HttpHandler handler) {
+        return exchange -> {
+            long startMillis = System.currentTimeMillis();
+            long start = System.nanoTime();
+            CountingOutputStream body = CountingOutputStream.wrap(exchange.getResponseBody());
+            exchange.setStreams(null, body);
+            try {
+                handler.handle(exchange);
+            } finally {
+                record(exchange, startMillis, System.nanoTime() - start, body.getCount());
+            }
+        };
+    }
+
+    private void record(HttpExchange exchange, long startMillis, long durationNanos, long bytes) {
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        String remoteAddress = remote != null && remote.getAddress() != null
+                ? remote.getAddress().getHostAddress() : "-";
+        offer(new Entry(startMillis, remoteAddress, exchange.getRequestMethod(),
+                exchange.getRequestURI().toString(), exchange.getProtocol(), exchange.getResponseCode(), bytes,
+                durationNanos / 1000, exchange.getRequestHeaders().getFirst("Referer"),
+                exchange.getRequestHeaders().getFirst("User-Agent")));
+    }
+
+    // Message d'erreur d'une requête, écrit sur la sortie d'erreur par le thread d'écriture
+    void error(String message) {
+        offer(new Entry(message));
+    }
+
+    private void offer(Entry entry) {
+        if (!ring.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(64 * 1024);
+        List<String> errors = new ArrayList<>();
+        while (true) {
+            boolean stopping = !running;
+            int drained = 0;
+            Entry entry;
+            while ((entry = ring.poll()) != null) {
+                drained++;
+                if (entry.message != null) {
+                    errors.add(formatTime(entry.timeMillis) + " " + entry.message);
+                    continue;
+                }
+                append(batch, entry);
+                written.increment();
+                if (batch.length() >= MAX_BATCH_BYTES) {
+                    flush(batch);
+                }
+            }
+            flush(batch);
+            for (String error : errors) {
+                System.err.println(error);
+            }
+            errors.clear();
+
+            long lost = dropped.sum();
+            if (lost != reportedDropped) {
+                System.err.println("Access log: " + (lost - reportedDropped) + " entries dropped (buffer full)");
+                reportedDropped = lost;
+            }
+            if (stopping) {
+                break;
+            }
+            // Anneau à moitié plein ou plus : le trafic est soutenu, on repasse sans attendre
+            if (drained < ring.capacity() / 2) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void flush(StringBuilder batch) {
+        if (batch.length() == 0) {
+            return;
+        }
+        byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        batch.setLength(0);
+        if (file == null) {
+            PrintStream out = System.out;
+            out.write(bytes, 0, bytes.length);
+            out.flush();
+            return;
+        }
+        try {
+            if (System.currentTimeMillis() >= nextRotation || (maxSize > 0 && size > 0 && size + bytes.length > maxSize)) {
+                rotate();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            size += bytes.length;
+        } catch (IOException e) {
+            System.err.println("Access log write failed: " + e.getMessage());
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        switch (rotation) {
+            case HOURLY:
+                nextRotation = now.truncatedTo(ChronoUnit.HOURS).plusHours(1).toInstant().toEpochMilli();
+                break;
+            case DAILY:
+                nextRotation = now.truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant().toEpochMilli();
+                break;
+            default:
+                nextRotation = Long.MAX_VALUE;
+        }
+    }
+
+    // Fichier courant renommé avec la date, les plus anciens au-delà de access.log.max.files supprimés
+    private void rotate() throws IOException {
+        channel.close();
+        String baseName = file.getFileName().toString();
+        try {
+            if (size > 0) {
+                String rotatedName = baseName + "." + ZonedDateTime.now(zone).format(ROTATED_SUFFIX);
+                Path rotated = file.resolveSibling(rotatedName);
+                // Plusieurs rotations dans la même seconde (petite taille maximale)
+                for (int i = 1; Files.exists(rotated); i++) {
+                    rotated = file.resolveSibling(rotatedName + "-" + i);
+                }
+                Files.move(file, rotated);
+            }
+        } finally {
+            open();
+        }
+
+        if (maxFiles > 0) {
+            List<Path> previous = new ArrayList<>();
+            Path directory = file.toAbsolutePath().getParent();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, baseName + ".*")) {
+                stream.forEach(previous::add);
+            }
+            previous.sort(null);
+            for (int i = 0; i < previous.size() - maxFiles; i++) {
+                Files.deleteIfExists(previous.get(i));
+            }
+        }
+    }
+
+    private void append(StringBuilder out, Entry entry) {
+        if (format == Format.JSON) {
+            out.append("{\"time\":\"").append(Instant.ofEpochMilli(entry.timeMillis))
+                    .append("\",\"remote\":\"").append(entry.remoteAddress)
+                    .append("\",\"method\":");
+            appendJson(out, entry.method);
+            out.append(",\"uri\":");
+            appendJson(out, entry.uri);
+            out.append(",\"protocol\":");
+            appendJson(out, entry.protocol);
+            out.append(",\"status\":").append(entry.status)
+                    .append(",\"bytes\":").append(entry.bytes)
+                    .append(",\"duration_us\":").append(entry.durationMicros)
+                    .append(",\"referer\":");
+            appendJson(out, entry.referer);
+            out.append(",\"user_agent\":");
+            appendJson(out, entry.userAgent);
+            out.append("}\n");
+            return;
+        }
+        out.append(entry.remoteAddress).append(" - - [").append(formatTime(entry.timeMillis)).append("] \"")
+                .append(entry.method).append(' ');
+        appendQuoted(out, entry.uri);
+        out.append(' ').append(entry.protocol).append("\" ")
+                .append(entry.status > 0 ? String.valueOf(entry.status) : "-").append(' ')
+                .append(entry.bytes > 0 ? String.valueOf(entry.bytes) : "-");
+        if (format == Format.COMBINED) {
+            out.append(" \"");
+            appendQuoted(out, entry.referer != null ? entry.referer : "-");
+            out.append("\" \"");
+            appendQuoted(out, entry.userAgent != null ? entry.userAgent : "-");
+            out.append('"');
+        }
+        out.append('\n');
+    }
+
+    // Heure au format Common Log, recalculée au plus une fois par seconde
+    private String formatTime(long timeMillis) {
+        long second = timeMillis / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTime = CLF_TIME.format(Instant.ofEpochSecond(second).atZone(zone));
+        }
+        return cachedTime;
+    }
+
+    // Guillemets et caractères de contrôle échappés : une ligne par requête, quoi qu'envoie le client
+    private static void appendQuoted(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7f) {
+                out.append(String.format("\\x%02x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static void appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
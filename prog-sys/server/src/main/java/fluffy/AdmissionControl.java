@@ -0,0 +1,267 @@
+package fluffy;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Contrôle d'admission : requêtes simultanées par type de traitement et débit par adresse IP
+//
+// Une requête refusée ne coûte qu'une réponse courte : 503 si le type de traitement est saturé,
+// 429 si le client dépasse son débit, avec Retry-After dans les deux cas. En mode adaptatif, la limite
+// PHP baisse quand la latence moyenne dépasse la cible, puis remonte d'une unité par intervalle.
+class AdmissionControl {
+    // Motif et délai d'un refus
+    static final class Rejection {
+        final int status;
+        final long retryAfterSeconds;
+
+        Rejection(int status, long retryAfterSeconds) {
+            this.status = status;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    private static final Rejection OVERLOADED = new Rejection(503, 1);
+    private static final Metrics.Route[] ROUTES = { Metrics.Route.STATIC, Metrics.Route.PHP, Metrics.Route.LISTING,
+            Metrics.Route.PROXY };
+    private static final long ADAPTIVE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Requêtes en cours d'un type de traitement ; sans verrou, la limite peut changer à tout moment
+    private static final class Limiter {
+        final int max;
+        final int min;
+        final long targetNanos;
+        volatile int limit;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder windowNanos = new LongAdder();
+        final LongAdder windowCount = new LongAdder();
+        final AtomicLong windowEnd = new AtomicLong(System.nanoTime() + ADAPTIVE_INTERVAL_NANOS);
+
+        Limiter(int max, int min, long targetNanos) {
+            this.max = max;
+            this.min = Math.max(1, Math.min(min, max));
+            this.targetNanos = targetNanos;
+            this.limit = max;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release(long elapsedNanos) {
+            inFlight.decrementAndGet();
+            if (targetNanos <= 0) {
+                return;
+            }
+            windowNanos.add(elapsedNanos);
+            windowCount.increment();
+            long now = System.nanoTime();
+            long end = windowEnd.get();
+            // Une seule requête par intervalle ajuste la limite
+            if (now - end >= 0 && windowEnd.compareAndSet(end, now + ADAPTIVE_INTERVAL_NANOS)) {
+                long count = windowCount.sumThenReset();
+                long total = windowNanos.sumThenReset();
+                if (count > 0 && total / count > targetNanos) {
+                    limit = Math.max(min, limit * 3 / 4);
+                } else if (limit < max) {
+                    limit++;
+                }
+            }
+        }
+    }
+
+    // Seau à jetons d'un client, un par type de traitement, sous forme d'heure d'arrivée théorique (GCRA) :
+    // une seule valeur par seau, mise à jour par compareAndSet
+    private static final class Client {
+        final AtomicLongArray arrivals = new AtomicLongArray(ROUTES.length);
+    }
+
+    private final Limiter[] limiters = new Limiter[Metrics.Route.values().length];
+    // Intervalle entre deux jetons et capacité du seau, en nanosecondes ; 0 = pas de limite de débit
+    private final long[] emissionNanos = new long[Metrics.Route.values().length];
+    private final long[] burstNanos = new long[Metrics.Route.values().length];
+    private final ConcurrentHashMap<InetAddress, Client> clients = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    private AdmissionControl(Properties config) {
+        long phpTarget = TimeUnit.MILLISECONDS.toNanos(
+                Long.parseLong(config.getProperty("admission.adaptive.php.latency", "0").trim()));
+        int phpMin = Integer.parseInt(config.getProperty("admission.adaptive.php.min", "1").trim());
+        int threads = Integer.parseInt(config.getProperty("server.executor.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 4)).trim());
+
+        for (Metrics.Route route : ROUTES) {
+            int concurrency = Integer.parseInt(
+                    config.getProperty("admission.concurrency." + route.label, "0").trim());
+            boolean adaptive = route == Metrics.Route.PHP && phpTarget > 0;
+            if (concurrency > 0 || adaptive) {
+                // Sans limite fixe, la limite adaptative ne dépasse pas le nombre de workers HTTP
+                limiters[route.ordinal()] = new Limiter(concurrency > 0 ? concurrency : threads, phpMin,
+                        adaptive ? phpTarget : 0);
+            }
+
+            double rate = Double.parseDouble(config.getProperty("admission.rate." + route.label, "0").trim());
+            if (rate > 0) {
+                int burst = Integer.parseInt(config.getProperty("admission.burst." + route.label,
+                        String.valueOf((int) Math.ceil(rate))).trim());
+                emissionNanos[route.ordinal()] = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+                burstNanos[route.ordinal()] = emissionNanos[route.ordinal()] * Math.max(1, burst);
+            }
+        }
+    }
+
+    // Renvoie null si le contrôle d'admission est désactivé dans la configuration
+    static AdmissionControl fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("admission.enabled", "false").trim())) {
+            return null;
+        }
+        return new AdmissionControl(config);
+    }
+
+    // null si la requête peut être servie ; elle doit alors être suivie de release
+    Rejection admit(InetSocketAddress remote, Metrics.Route route) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+
+        long emission = emissionNanos[route.ordinal()];
+        boolean charged = emission > 0 && remote != null;
+        if (charged) {
+            long wait = consume(remote.getAddress(), route, emission, now);
+            if (wait > 0) {
+                rateLimited.increment();
+                return new Rejection(429, Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1)
+                        / TimeUnit.SECONDS.toNanos(1)));
+            }
+        }
+
+        Limiter limiter = limiters[route.ordinal()];
+        if (limiter != null && !limiter.tryAcquire()) {
+            // Requête non servie : son jeton est rendu, les 503 d'un serveur saturé n'épuisent pas le débit
+            if (charged) {
+                refund(remote.getAddress(), route, emission);
+            }
+            overloaded.increment();
+            return OVERLOADED;
+        }
+        return null;
+    }
+
+    void release(Metrics.Route route, long elapsedNanos) {
+        Limiter limiter = limiters[route.ordinal()];
+        if (limiter != null) {
+            limiter.release(elapsedNanos);
+        }
+    }
+
+    // Prend un jeton ; renvoie 0, ou l'attente en nanosecondes avant le prochain jeton disponible
+    private long consume(InetAddress address, Metrics.Route route, long emission, long now) {
+        Client client = clients.get(address);
+        if (client == null) {
+            client = clients.computeIfAbsent(address, a -> new Client());
+        }
+        int index = bucketIndex(route);
+        while (true) {
+            long arrival = client.arrivals.get(index);
+            long next = Math.max(arrival == 0 ? now : arrival, now) + emission;
+            long excess = next - now - burstNanos[route.ordinal()];
+            if (excess > 0) {
+                return excess;
+            }
+            if (client.arrivals.compareAndSet(index, arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Recule l'heure d'arrivée théorique d'un intervalle ; les prises concurrentes restent comptées
+    private void refund(InetAddress address, Metrics.Route route, long emission) {
+        Client client = clients.get(address);
+        if (client != null) {
+            client.arrivals.addAndGet(bucketIndex(route), -emission);
+        }
+    }
+
+    // Retire les clients dont tous les seaux sont pleins : les oublier ne change aucune décision
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        for (Iterator<Client> it = clients.values().iterator(); it.hasNext(); ) {
+            Client client = it.next();
+            boolean idle = true;
+            for (int i = 0; i < ROUTES.length && idle; i++) {
+                long arrival = client.arrivals.get(i);
+                idle = arrival == 0 || arrival - now <= 0;
+            }
+            if (idle) {
+                it.remove();
+            }
+        }
+    }
+
+    private static int bucketIndex(Metrics.Route route) {
+        for (int i = 0; i < ROUTES.length; i++) {
+            if (ROUTES[i] == route) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No admission bucket for route " + route);
+    }
+
+    long getOverloaded() {
+        return overloaded.sum();
+    }
+
+    long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    long getTrackedClients() {
+        return clients.size();
+    }
+
+    long getPhpLimit() {
+        Limiter limiter = limiters[Metrics.Route.PHP.ordinal()];
+        return limiter != null ? limiter.limit : 0;
+    }
+
+    String describe() {
+        StringBuilder out = new StringBuilder("admission control (");
+        for (Metrics.Route route : ROUTES) {
+            Limiter limiter = limiters[route.ordinal()];
+            long emission = emissionNanos[route.ordinal()];
+            if (out.charAt(out.length() - 1) != '(') {
+                out.append("; ");
+            }
+            out.append(route.label).append(": ");
+            out.append(limiter != null ? limiter.max + " concurrent" : "unlimited");
+            if (limiter != null && limiter.targetNanos > 0) {
+                out.append(" adaptive above ").append(limiter.targetNanos / 1_000_000).append(" ms");
+            }
+            if (emission > 0) {
+                out.append(String.format(", %.1f req/s per client (burst %d)", 1e9 / emission,
+                        burstNanos[route.ordinal()] / emission));
+            }
+        }
+        return out.append(')').toString();
+    }
+}
@@ -0,0 +1,29 @@
+package fluffy;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.CountDownLatch;
+
+// Ouvre le navigateur intégré à la première requête reçue
+//
+// Seule classe du serveur qui dépend de Swing : NetworkHttpServer ne la charge que si le navigateur
+// est activé, un serveur sans interface ne charge donc aucune classe AWT ni Swing.
+final class BrowserLauncher {
+    private BrowserLauncher() {
+    }
+
+    static void launchAfter(CountDownLatch firstRequest) {
+        Thread thread = new Thread(() -> {
+            try {
+                firstRequest.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                EnhancedNetworkBrowser browser = new EnhancedNetworkBrowser();
+                browser.setVisible(true);
+            });
+        }, "browser-launcher");
+        thread.start();
+    }
+}
@@ -0,0 +1,154 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Requêtes partielles (Range) : une ou plusieurs plages, réponse 206 ou multipart/byteranges
+final class ByteRanges {
+    // Au-delà, l'en-tête Range est ignoré et le fichier entier est envoyé
+    private static final int MAX_RANGES = 16;
+
+    static final class Range {
+        final long start;
+        final long end; // inclus
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+
+    // Écrit une portion du contenu (lecture positionnelle)
+    interface Source {
+        void write(OutputStream out, long position, long count) throws IOException;
+    }
+
+    private ByteRanges() {
+    }
+
+    // null : en-tête absent ou invalide (réponse complète) ; liste vide : aucune plage satisfiable (416)
+    static List<Range> parse(String header, long size) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<Range> ranges = new ArrayList<>(specs.length);
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                if (dash == 0) {
+                    // Suffixe : les N derniers octets
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new Range(Math.max(0, size - suffix), size - 1));
+                    }
+                    continue;
+                }
+                long start = Long.parseLong(spec.substring(0, dash));
+                long end = dash == spec.length() - 1 ? size - 1 : Long.parseLong(spec.substring(dash + 1));
+                if (start < 0 || end < start && dash != spec.length() - 1) {
+                    return null;
+                }
+                if (start < size) {
+                    ranges.add(new Range(start, Math.min(end, size - 1)));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    // Fusionne les plages qui se chevauchent ou se touchent
+    private static List<Range> coalesce(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(r -> r.start));
+        List<Range> merged = new ArrayList<>(ranges.size());
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            Range next = ranges.get(i);
+            if (next.start <= current.end + 1) {
+                current = new Range(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    // If-Range : comparaison forte de l'ETag, ou date égale à Last-Modified
+    static boolean ifRangeMatches(String ifRange, String etag, long lastModifiedMillis) {
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            // Un ETag faible ne garantit pas l'identité des octets : jamais de plage sur sa base
+            return !value.startsWith("W/") && value.equals(etag);
+        }
+        long date = ConditionalRequest.parseHttpDate(value);
+        return date >= 0 && date / 1000 == lastModifiedMillis / 1000;
+    }
+
+    static void send(HttpExchange exchange, List<Range> ranges, long size, String contentType, Source source)
+            throws IOException {
+        if (ranges.size() == 1) {
+            Range range = ranges.get(0);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.getResponseHeaders().set("Content-Range", range.contentRange(size));
+            exchange.sendResponseHeaders(206, range.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                source.write(os, range.start, range.length());
+            }
+            return;
+        }
+
+        // Longueur exacte calculée à l'avance : pas de transfert chunked
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long length = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType
+                    + "\r\nContent-Range: " + range.contentRange(size) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            length += partHeaders[i].length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        length += closing.length;
+
+        exchange.getResponseHeaders().set("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        exchange.sendResponseHeaders(206, length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            for (int i = 0; i < ranges.size(); i++) {
+                os.write(partHeaders[i]);
+                source.write(os, ranges.get(i).start, ranges.get(i).length());
+            }
+            os.write(closing);
+        }
+    }
+}
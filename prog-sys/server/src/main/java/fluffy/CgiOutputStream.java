@@ -0,0 +1,205 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Sortie d'un script PHP relayée au client au fil de l'eau (transfert chunked)
+//
+// Les premiers octets restent dans un tampon de taille fixe : si le script se termine avant
+// qu'il soit plein, la réponse part avec un Content-Length exact et une erreur peut encore
+// devenir une 500. Une fois les en-têtes envoyés, une erreur ne peut plus que couper la connexion.
+class CgiOutputStream extends OutputStream {
+    private final HttpExchange exchange;
+    private final byte[] buffer;
+    private int count;
+    // Vrai tant que les en-têtes CGI (Status, Content-Type, ...) ne sont pas entièrement lus
+    private boolean parsingHeaders;
+    private int status = 200;
+    private boolean hasContentType;
+    private boolean committed;
+    private OutputStream body;
+    private long bodyBytes;
+    private boolean finished;
+    // Copie du corps pour le micro-cache PHP, abandonnée au-delà de captureLimit
+    private ByteArrayOutputStream captured;
+    private int captureLimit;
+
+    CgiOutputStream(HttpExchange exchange, int bufferSize) {
+        this.exchange = exchange;
+        this.buffer = new byte[bufferSize];
+    }
+
+    // php-cgi fait précéder le corps d'en-têtes CGI ; php en ligne de commande non
+    void expectCgiHeaders() {
+        parsingHeaders = true;
+    }
+
+    void capture(int maxBytes) {
+        captureLimit = maxBytes;
+        captured = new ByteArrayOutputStream(Math.min(maxBytes, buffer.length));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (committed) {
+                body.write(b, off, len);
+                record(b, off, len);
+                bodyBytes += len;
+                return;
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+
+            if (parsingHeaders) {
+                parseHeaders();
+            }
+            if (count == buffer.length) {
+                // En-têtes trop longs : tout est traité comme le corps
+                parsingHeaders = false;
+                commit(0);
+            }
+        }
+    }
+
+    // Le script marque une pause : ce qui est prêt part tout de suite
+    @Override
+    public void flush() throws IOException {
+        if (!committed) {
+            if (parsingHeaders) {
+                return;
+            }
+            commit(0);
+        }
+        body.flush();
+    }
+
+    // Fin normale du script : longueur exacte si rien n'a encore été envoyé
+    void finish() throws IOException {
+        if (!committed) {
+            parsingHeaders = false;
+            commit(count == 0 ? -1 : count);
+        }
+        body.close();
+        finished = true;
+    }
+
+    boolean isCommitted() {
+        return committed;
+    }
+
+    long getBodyBytes() {
+        return bodyBytes;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    // Corps complet si le script s'est terminé normalement et que la copie n'a pas débordé
+    byte[] capturedBody() {
+        return finished && captured != null ? captured.toByteArray() : null;
+    }
+
+    // Contenu encore en attente (pour les journaux d'erreur)
+    String bufferedOutput() {
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+
+    private void commit(long length) throws IOException {
+        if (!hasContentType) {
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        }
+        boolean noBody = "HEAD".equals(exchange.getRequestMethod()) || status == 204 || status == 304;
+        exchange.sendResponseHeaders(status, noBody ? -1 : length);
+        committed = true;
+        body = noBody ? OutputStream.nullOutputStream() : exchange.getResponseBody();
+        if (noBody) {
+            exchange.close();
+        }
+        body.write(buffer, 0, count);
+        record(buffer, 0, count);
+        bodyBytes += count;
+        count = 0;
+    }
+
+    private void record(byte[] b, int off, int len) {
+        if (captured == null) {
+            return;
+        }
+        if (captured.size() + len > captureLimit) {
+            captured = null;
+        } else {
+            captured.write(b, off, len);
+        }
+    }
+
+    // Applique les lignes d'en-tête complètes jusqu'à la ligne vide qui les termine
+    private void parseHeaders() {
+        while (true) {
+            int lineEnd = indexOf('\n', 0, count);
+            if (lineEnd < 0) {
+                return;
+            }
+            int contentEnd = lineEnd > 0 && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd == 0) {
+                consume(lineEnd + 1);
+                parsingHeaders = false;
+                return;
+            }
+            int colon = indexOf(':', 0, contentEnd);
+            if (colon <= 0) {
+                // Ligne qui n'est pas un en-tête : le corps commence ici
+                parsingHeaders = false;
+                return;
+            }
+            String name = new String(buffer, 0, colon, StandardCharsets.ISO_8859_1).trim();
+            String value = new String(buffer, colon + 1, contentEnd - colon - 1, StandardCharsets.ISO_8859_1).trim();
+            applyHeader(name, value);
+            consume(lineEnd + 1);
+        }
+    }
+
+    private void applyHeader(String name, String value) {
+        if (name.equalsIgnoreCase("Status")) {
+            try {
+                status = Integer.parseInt(value.split(" ", 2)[0]);
+            } catch (NumberFormatException e) {
+                status = 500;
+            }
+            return;
+        }
+        if (name.equalsIgnoreCase("Location") && status == 200) {
+            status = 302;
+        }
+        hasContentType |= name.equalsIgnoreCase("Content-Type");
+        exchange.getResponseHeaders().add(name, value);
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Les en-têtes déjà appliqués sont retirés du tampon
+    private void consume(int bytes) {
+        System.arraycopy(buffer, bytes, buffer, 0, count - bytes);
+        count -= bytes;
+    }
+}
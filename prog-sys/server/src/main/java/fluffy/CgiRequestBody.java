@@ -0,0 +1,110 @@
+package fluffy;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Corps de requête transmis à PHP (entrée standard du processus ou enregistrements STDIN FastCGI)
+//
+// Longueur annoncée (Content-Length) : le flux de l'échange est relayé tel quel, au fil de la lecture.
+// Transfert chunked : CGI exige CONTENT_LENGTH, le corps est donc d'abord recopié dans un fichier
+// temporaire, jamais gardé en mémoire. Au-delà de la limite (php.max.body), la requête est refusée.
+final class CgiRequestBody implements Closeable {
+    static final class TooLargeException extends IOException {
+        TooLargeException(long limit) {
+            super("Request body larger than " + limit + " bytes");
+        }
+    }
+
+    private static final int SPOOL_BUFFER = 8192;
+
+    final InputStream stream;
+    final long length;
+    private final Path spool;
+
+    private CgiRequestBody(InputStream stream, long length, Path spool) {
+        this.stream = stream;
+        this.length = length;
+        this.spool = spool;
+    }
+
+    static CgiRequestBody open(HttpExchange exchange, long maxBytes) throws IOException {
+        Headers headers = exchange.getRequestHeaders();
+        String declared = headers.getFirst("Content-Length");
+        if (declared != null) {
+            long length;
+            try {
+                length = Long.parseLong(declared.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + declared);
+            }
+            if (length > maxBytes) {
+                throw new TooLargeException(maxBytes);
+            }
+            return new CgiRequestBody(length > 0 ? exchange.getRequestBody() : InputStream.nullInputStream(),
+                    Math.max(0, length), null);
+        }
+        if (!headers.containsKey("Transfer-Encoding")) {
+            return new CgiRequestBody(InputStream.nullInputStream(), 0, null);
+        }
+
+        // Le flux de l'échange n'est pas fermé ici : en cas de refus, le serveur décide s'il vide le reste
+        Path spool = Files.createTempFile("fluffy-body-", ".tmp");
+        try {
+            long length = 0;
+            InputStream in = exchange.getRequestBody();
+            try (OutputStream out = Files.newOutputStream(spool)) {
+                byte[] buffer = new byte[SPOOL_BUFFER];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    length += read;
+                    if (length > maxBytes) {
+                        throw new TooLargeException(maxBytes);
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            return new CgiRequestBody(Files.newInputStream(spool), length, spool);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+    }
+
+    // Copie vers l'entrée du script, fermée à la fin ; un script qui se termine sans tout lire n'est pas
+    // une erreur, seule une lecture interrompue côté client en est une
+    void copyTo(OutputStream stdin, int bufferSize) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        try {
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                try {
+                    stdin.write(buffer, 0, read);
+                    stdin.flush();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        } finally {
+            try {
+                stdin.close();
+            } catch (IOException e) {
+                // Script déjà terminé
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spool != null) {
+            stream.close();
+            Files.deleteIfExists(spool);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Négociation Accept-Encoding et cache borné des variantes compressées
+class Compression {
+    static final String GZIP = "gzip";
+    static final String BROTLI = "br";
+
+    // Ordre de préférence du serveur ; br n'est servi que depuis un fichier .br précompressé
+    private static final String[] ENCODINGS = { BROTLI, GZIP };
+
+    static final class Variant {
+        final String encoding;
+        final byte[] content;
+
+        Variant(String encoding, byte[] content) {
+            this.encoding = encoding;
+            this.content = content;
+        }
+    }
+
+    // Fichier précompressé (.gz, .br) plus récent que l'original
+    static final class Sibling {
+        final String encoding;
+        final Path path;
+        final long size;
+
+        Sibling(String encoding, Path path, long size) {
+            this.encoding = encoding;
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    // Contenu original, lu seulement s'il faut calculer la variante
+    interface Content {
+        byte[] read() throws IOException;
+    }
+
+    private static final class Key {
+        final Path path;
+        final String encoding;
+        final long lastModified;
+
+        Key(Path path, String encoding, long lastModified) {
+            this.path = path;
+            this.encoding = encoding;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return lastModified == other.lastModified && path.equals(other.path) && encoding.equals(other.encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + encoding.hashCode()) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    // Marque une variante absente (pas de .br, ou compression inutile) pour ne pas la rechercher à nouveau
+    private static final Variant NONE = new Variant(null, new byte[0]);
+
+    private final int minSize;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<Key, Variant> variants = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong precompressedLoads = new AtomicLong();
+
+    Compression(int minSize, long maxBytes, long maxEntryBytes) {
+        this.minSize = minSize;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    // Renvoie null si la compression est désactivée dans la configuration
+    static Compression fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("compression.enabled", "true").trim())) {
+            return null;
+        }
+        int minSize = Integer.parseInt(config.getProperty("compression.min.size", "1024").trim());
+        long maxBytes = Long.parseLong(config.getProperty("compression.cache.max.bytes", "16777216").trim());
+        long maxEntryBytes = Long.parseLong(
+                config.getProperty("compression.cache.max.entry.bytes", "1048576").trim());
+        return new Compression(minSize, maxBytes, maxEntryBytes);
+    }
+
+    // Les images, archives et médias sont déjà compressés
+    static boolean isCompressibleType(String mimeType) {
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.startsWith("application/javascript")
+                || type.startsWith("application/json")
+                || type.startsWith("application/xml")
+                || type.startsWith("image/svg+xml")
+                || type.contains("+xml")
+                || type.contains("+json");
+    }
+
+    // La compressibilité vient de la table de dispatch, calculée une fois par extension
+    boolean shouldCompress(boolean compressible, long size) {
+        return compressible && size >= minSize;
+    }
+
+    // Variante gardable en cache : le fichier peut passer par select même sans cache des fichiers statiques
+    boolean fitsCache(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    // Encodages acceptés par le client (q > 0), dans l'ordre de préférence du serveur
+    static List<String> acceptedEncodings(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (header == null || header.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> accepted = new ArrayList<>(2);
+        for (String encoding : ENCODINGS) {
+            if (qualityOf(header, encoding) > 0) {
+                accepted.add(encoding);
+            }
+        }
+        return accepted;
+    }
+
+    private static double qualityOf(String header, String encoding) {
+        double wildcard = 0;
+        for (String part : header.split(",")) {
+            String[] params = part.trim().split(";");
+            String name = params[0].trim();
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(encoding)) {
+                return quality;
+            }
+            if (name.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    static String variantEtag(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    // Variante compressée d'un contenu en mémoire : .br/.gz voisin, sinon gzip calculé une fois puis gardé
+    Variant select(Path file, long lastModified, byte[] content, List<String> accepted) throws IOException {
+        return select(file, lastModified, () -> content, accepted);
+    }
+
+    Variant select(Path file, long lastModified, Content content, List<String> accepted) throws IOException {
+        for (String encoding : accepted) {
+            Key key = new Key(file, encoding, lastModified);
+            Variant variant = get(key);
+            if (variant == null) {
+                misses.incrementAndGet();
+                variant = load(file, lastModified, content, encoding);
+                put(key, variant);
+            } else {
+                hits.incrementAndGet();
+            }
+            if (variant != NONE) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    private Variant load(Path file, long lastModified, Content source, String encoding) throws IOException {
+        Sibling sibling = findSibling(file, lastModified, encoding);
+        if (sibling != null && sibling.size <= maxEntryBytes) {
+            precompressedLoads.incrementAndGet();
+            return new Variant(encoding, Files.readAllBytes(sibling.path));
+        }
+        if (!GZIP.equals(encoding)) {
+            return NONE;
+        }
+        byte[] content = source.read();
+        byte[] compressed = gzip(content);
+        // Aucun gain : le contenu original est servi tel quel
+        return compressed.length < content.length ? new Variant(GZIP, compressed) : NONE;
+    }
+
+    Sibling findSibling(Path file, long lastModified, List<String> accepted) throws IOException {
+        for (String encoding : accepted) {
+            Sibling sibling = findSibling(file, lastModified, encoding);
+            if (sibling != null) {
+                return sibling;
+            }
+        }
+        return null;
+    }
+
+    private static Sibling findSibling(Path file, long lastModified, String encoding) throws IOException {
+        Path path = file.resolveSibling(file.getFileName() + (GZIP.equals(encoding) ? ".gz" : ".br"));
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.isRegularFile() && attributes.lastModifiedTime().toMillis() >= lastModified) {
+                return new Sibling(encoding, path, attributes.size());
+            }
+        } catch (NoSuchFileException e) {
+            // Pas de version précompressée
+        }
+        return null;
+    }
+
+    static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 3));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    private synchronized Variant get(Key key) {
+        return variants.get(key);
+    }
+
+    private synchronized void put(Key key, Variant variant) {
+        if (variant.content.length > maxEntryBytes) {
+            return;
+        }
+        Variant previous = variants.put(key, variant);
+        if (previous != null) {
+            currentBytes -= previous.content.length;
+        }
+        currentBytes += variant.content.length;
+
+        Iterator<Variant> eldest = variants.values().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().content.length;
+            eldest.remove();
+        }
+    }
+
+    // Un .gz/.br modifié invalide aussi les variantes de l'original
+    synchronized void invalidate(Path changed) {
+        String name = changed.getFileName() != null ? changed.getFileName().toString() : "";
+        Path original = name.endsWith(".gz") || name.endsWith(".br")
+                ? changed.resolveSibling(name.substring(0, name.length() - 3))
+                : changed;
+        Iterator<Map.Entry<Key, Variant>> it = variants.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Variant> entry = it.next();
+            if (entry.getKey().path.startsWith(changed) || entry.getKey().path.equals(original)) {
+                currentBytes -= entry.getValue().content.length;
+                it.remove();
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getPrecompressedLoads() {
+        return precompressedLoads.get();
+    }
+
+    synchronized long getSizeBytes() {
+        return currentBytes;
+    }
+
+    String describe() {
+        return String.format("compression (gzip, precompressed .gz/.br, min %d bytes, cache %d bytes)",
+                minSize, maxBytes);
+    }
+}
@@ -0,0 +1,92 @@
+package fluffy;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+// Validateurs HTTP (ETag, Last-Modified) et réponses 304 Not Modified
+final class ConditionalRequest {
+    // RFC_1123_DATE_TIME ne complète pas le jour sur deux chiffres, exigé par HTTP
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+    private ConditionalRequest() {
+    }
+
+    // ETag fort calculé à partir de la date de modification et de la taille, sans lire le contenu
+    static String etag(long size, long lastModifiedMillis) {
+        return "\"" + Long.toHexString(lastModifiedMillis) + "-" + Long.toHexString(size) + "\"";
+    }
+
+    static String httpDate(long millis) {
+        return HTTP_DATE.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    static long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    // Ajoute les validateurs et envoie une 304 si le client a déjà cette version
+    static boolean handle(HttpExchange exchange, String etag, long lastModifiedMillis, String lastModifiedHeader)
+            throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified", lastModifiedHeader);
+
+        String method = exchange.getRequestMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        if (!isNotModified(exchange.getRequestHeaders(), etag, lastModifiedMillis)) {
+            return false;
+        }
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    static boolean handle(HttpExchange exchange, String etag, long lastModifiedMillis) throws IOException {
+        return handle(exchange, etag, lastModifiedMillis, httpDate(lastModifiedMillis));
+    }
+
+    // If-None-Match est prioritaire : If-Modified-Since n'est consulté qu'en son absence
+    static boolean isNotModified(Headers requestHeaders, String etag, long lastModifiedMillis) {
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            long since = parseHttpDate(ifModifiedSince);
+            return since >= 0 && lastModifiedMillis / 1000 <= since / 1000;
+        }
+        return false;
+    }
+
+    // Comparaison faible (RFC 7232) : le préfixe W/ est ignoré
+    static boolean matches(String headerValue, String etag) {
+        for (String candidate : headerValue.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package fluffy;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Surveille le fichier de configuration et appelle l'action de rechargement après chaque modification
+//
+// Le dossier parent est surveillé : un éditeur qui remplace le fichier (écriture puis renommage)
+// produit une création et non une modification. Les événements rapprochés sont regroupés.
+class ConfigWatcher implements Runnable {
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path file;
+    private final WatchService watchService;
+    private final Runnable reload;
+
+    private ConfigWatcher(Path file, Runnable reload) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.reload = reload;
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    }
+
+    static ConfigWatcher start(Path file, Runnable reload) throws IOException {
+        ConfigWatcher watcher = new ConfigWatcher(file, reload);
+        // Pas un thread démon : une nouvelle écoute ouverte depuis ce thread en hérite le statut
+        // et doit maintenir la JVM en vie une fois l'ancienne arrêtée
+        Thread thread = new Thread(watcher, "config-watcher");
+        thread.setDaemon(false);
+        thread.start();
+        return watcher;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW || file.getFileName().equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    key.reset();
+                    // Attendre la fin de l'écriture : un éditeur peut écrire en plusieurs fois
+                } while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                if (changed) {
+                    reload.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Surveillance arrêtée
+        }
+    }
+
+    void close() throws IOException {
+        watchService.close();
+    }
+}
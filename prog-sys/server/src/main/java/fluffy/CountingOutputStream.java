@@ -0,0 +1,66 @@
+package fluffy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+// Flux de réponse qui compte les octets envoyés au client
+class CountingOutputStream extends OutputStream {
+    private final OutputStream out;
+    private long count;
+
+    private CountingOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    // Un flux adossé à un canal le reste : FileTransfer peut toujours utiliser transferTo
+    static CountingOutputStream wrap(OutputStream out) {
+        return out instanceof FileTransfer.ChannelSink ? new Channel(out) : new CountingOutputStream(out);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    void added(long bytes) {
+        count += bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        added(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        added(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static final class Channel extends CountingOutputStream implements FileTransfer.ChannelSink {
+        private final FileTransfer.ChannelSink sink;
+
+        Channel(OutputStream out) {
+            super(out);
+            this.sink = (FileTransfer.ChannelSink) out;
+        }
+
+        @Override
+        public long transferFrom(FileChannel channel, long position, long count) throws IOException {
+            long sent = sink.transferFrom(channel, position, count);
+            added(sent);
+            return sent;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package fluffy;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contenu des dossiers déjà lus (noms, attributs, tris), invalidé par date de modification ou surveillance
+class DirectoryListingCache {
+    static final class Item {
+        final String name;
+        final boolean directory;
+        final long size;
+        final long lastModified;
+        // Fragments HTML précalculés, écrits de part et d'autre de l'URL du dossier
+        final String opening;
+        final String closing;
+
+        Item(String name, boolean directory, long size, long lastModified, String opening, String closing) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.opening = opening;
+            this.closing = closing;
+        }
+    }
+
+    static final class Listing {
+        final long lastModified;
+        // Empreinte des noms, tailles et dates des entrées : un fichier modifié sur place change la page
+        // sans changer la date du dossier
+        final long version;
+        // Date la plus récente du dossier et de ses entrées (Last-Modified de la page)
+        final long newestModified;
+        private final Item[] byName;
+        private volatile Item[] bySize;
+        private volatile Item[] byModified;
+
+        Listing(long lastModified, List<Item> items) {
+            this.lastModified = lastModified;
+            this.byName = items.toArray(new Item[0]);
+            Arrays.sort(byName, Comparator.comparing((Item item) -> item.name, String.CASE_INSENSITIVE_ORDER));
+            long hash = lastModified;
+            long newest = lastModified;
+            for (Item item : byName) {
+                hash = 31 * (31 * (31 * hash + item.name.hashCode()) + item.size) + item.lastModified;
+                newest = Math.max(newest, item.lastModified);
+            }
+            this.version = hash;
+            this.newestModified = newest;
+        }
+
+        int size() {
+            return byName.length;
+        }
+
+        // Les tris autres que par nom sont calculés à la première demande puis conservés
+        Item[] sorted(String sort) {
+            if ("size".equals(sort)) {
+                Item[] sorted = bySize;
+                if (sorted == null) {
+                    sorted = byName.clone();
+                    Arrays.sort(sorted, Comparator.comparingLong((Item item) -> item.size));
+                    bySize = sorted;
+                }
+                return sorted;
+            }
+            if ("modified".equals(sort)) {
+                Item[] sorted = byModified;
+                if (sorted == null) {
+                    sorted = byName.clone();
+                    Arrays.sort(sorted, Comparator.comparingLong((Item item) -> item.lastModified));
+                    byModified = sorted;
+                }
+                return sorted;
+            }
+            return byName;
+        }
+    }
+
+    private final long maxItems;
+    private final LinkedHashMap<Path, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentItems;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    DirectoryListingCache(long maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    // Renvoie null si le cache est désactivé dans la configuration
+    static DirectoryListingCache fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("listing.cache.enabled", "true").trim())) {
+            return null;
+        }
+        return new DirectoryListingCache(
+                Long.parseLong(config.getProperty("listing.cache.max.entries", "200000").trim()));
+    }
+
+    // Une liste est périmée dès que la date de modification du dossier a changé
+    synchronized Listing get(Path dir, long lastModified) {
+        Listing listing = listings.get(dir);
+        if (listing != null && listing.lastModified == lastModified) {
+            hits.incrementAndGet();
+            return listing;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    synchronized void put(Path dir, Listing listing) {
+        if (listing.size() > maxItems) {
+            return;
+        }
+        Listing previous = listings.put(dir, listing);
+        if (previous != null) {
+            currentItems -= previous.size();
+        }
+        currentItems += listing.size();
+
+        Iterator<Listing> eldest = listings.values().iterator();
+        while (currentItems > maxItems && eldest.hasNext()) {
+            currentItems -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    // Un fichier modifié change la liste de son dossier (taille, date) ; un dossier modifié, la sienne
+    // et celles de ses sous-dossiers (débordement de la surveillance : toute la racine)
+    synchronized void invalidate(Path changed) {
+        Iterator<Map.Entry<Path, Listing>> it = listings.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Listing> entry = it.next();
+            if (entry.getKey().startsWith(changed) || entry.getKey().equals(changed.getParent())) {
+                currentItems -= entry.getValue().size();
+                it.remove();
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    synchronized long getItemCount() {
+        return currentItems;
+    }
+
+    String describe() {
+        return String.format("directory listing cache (%d entries)", maxItems);
+    }
+}
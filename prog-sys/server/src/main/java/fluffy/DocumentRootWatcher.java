@@ -0,0 +1,97 @@
+package fluffy;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Surveille la racine des documents (récursivement) et signale les chemins modifiés
+class DocumentRootWatcher implements Runnable {
+    private final Path root;
+    private final WatchService watchService;
+    private final List<Consumer<Path>> listeners = new CopyOnWriteArrayList<>();
+
+    private DocumentRootWatcher(Path root, Consumer<Path> listener) throws IOException {
+        this.root = root;
+        this.watchService = root.getFileSystem().newWatchService();
+        this.listeners.add(listener);
+        // Seule la racine est enregistrée ici ; les sous-dossiers le sont par le thread de surveillance
+        root.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+    }
+
+    static DocumentRootWatcher start(Path root, Consumer<Path> listener) throws IOException {
+        DocumentRootWatcher watcher = new DocumentRootWatcher(root, listener);
+        Thread thread = new Thread(watcher, "document-root-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    // Le chemin reçu est le fichier ou dossier modifié ; la racine en cas de débordement
+    void addListener(Consumer<Path> listener) {
+        listeners.add(listener);
+    }
+
+    private void registerTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        // Parcourir l'arbre lit les attributs de chaque fichier : des milliers de fichiers retardaient
+        // l'ouverture de l'écoute. Ce qui a été mis en cache pendant le parcours est ensuite oublié.
+        try {
+            registerTree(root);
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + root + ", caches may serve stale files: " + e.getMessage());
+        }
+        notifyListeners(root);
+
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    notifyListeners(root);
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed, LinkOption.NOFOLLOW_LINKS)) {
+                    try {
+                        registerTree(changed);
+                    } catch (IOException e) {
+                        System.err.println("Cannot watch " + changed + ": " + e.getMessage());
+                    }
+                }
+                notifyListeners(changed);
+            }
+            key.reset();
+        }
+    }
+
+    private void notifyListeners(Path changed) {
+        for (Consumer<Path> listener : listeners) {
+            listener.accept(changed);
+        }
+    }
+
+    void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,659 @@
+package fluffy;
+
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.EditorKit;
+import javax.swing.text.html.HTMLDocument;
+import java.awt.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class EnhancedNetworkBrowser extends JFrame {
+    private JEditorPane displayArea;
+    private JTextField addressBar;
+    private JButton goButton;
+    private JButton backButton;
+    private JButton forwardButton;
+    private JButton refreshButton;
+    private JButton homeButton;
+    private JProgressBar loadingProgress;
+    private JLabel statusLabel;
+    private List<String> history = new ArrayList<>();
+    private int currentHistoryIndex = -1;
+    // Navigation en cours ; lue et modifiée uniquement sur l'EDT
+    private Navigation pendingNavigation;
+    private final PageCache pageCache = PageCache.fromSystemProperties();
+    // Préchargement des liens survolés ; null si désactivé
+    private final LinkPrefetcher prefetcher = LinkPrefetcher.fromSystemProperties();
+    private static String protocol = "http://";
+    private static final String HOME_PAGE = protocol + "";
+    private static final Color TOOLBAR_GRADIENT_START = new Color(60, 63, 65);
+    private static final Color TOOLBAR_GRADIENT_END = new Color(43, 43, 43);
+    private static final Color BUTTON_HOVER_COLOR = new Color(70, 73, 75);
+    private static final Color BUTTON_PRESSED_COLOR = new Color(50, 53, 55);
+
+    // Au-delà (octets reçus, souvent compressés), la page s'affiche au fil de la lecture : installer d'un coup
+    // un document déjà construit crée toutes ses vues sur l'EDT
+    private static final long PROGRESSIVE_THRESHOLD = 32 * 1024;
+    private static final ExecutorService DOCUMENT_BUILDER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "page-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Chargement en cours ; la page n'est affichée que si elle est encore la navigation courante
+    private static final class Navigation {
+        final String urlString;
+        final boolean addToHistory;
+        // Ouverture de l'échange, ou préchargement repris
+        volatile CompletableFuture<?> opening;
+        volatile PageFetcher.Stream stream;
+        volatile int percent = -1;
+
+        Navigation(String urlString, boolean addToHistory) {
+            this.urlString = urlString;
+            this.addToHistory = addToHistory;
+        }
+
+        // Abandonne l'échange, en attente des en-têtes ou en cours de lecture
+        void cancel() {
+            if (opening != null) {
+                opening.cancel(true);
+            }
+            PageFetcher.Stream current = stream;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+
+    // Garde une copie du texte lu pour le cache, tant qu'elle ne dépasse pas la limite
+    private static final class CopyingReader extends FilterReader {
+        private final long limit;
+        private StringBuilder copy;
+
+        CopyingReader(Reader in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.copy = limit > 0 ? new StringBuilder() : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0 && copy != null) {
+                copy.append((char) c);
+                checkLimit();
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0 && copy != null) {
+                copy.append(buffer, offset, n);
+                checkLimit();
+            }
+            return n;
+        }
+
+        private void checkLimit() {
+            if (copy.length() > limit) {
+                copy = null;
+            }
+        }
+
+        // Texte complet ; null s'il a dépassé la limite
+        String copied() {
+            return copy != null ? copy.toString() : null;
+        }
+    }
+
+    public EnhancedNetworkBrowser() {
+        setTitle("Enhanced Network Browser");
+        setSize(1024, 768);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        JPanel mainContainer = new JPanel(new BorderLayout());
+        mainContainer.setBackground(new Color(245, 245, 245));
+
+        JPanel toolbarPanel = createToolbarPanel();
+        JPanel addressPanel = createAddressPanel();
+
+        JPanel navigationPanel = new JPanel(new BorderLayout());
+        navigationPanel.setBackground(TOOLBAR_GRADIENT_START);
+        navigationPanel.setBorder(new EmptyBorder(0, 0, 0, 0));
+        navigationPanel.add(toolbarPanel, BorderLayout.NORTH);
+        navigationPanel.add(addressPanel, BorderLayout.SOUTH);
+
+        setupDisplayArea();
+        JPanel statusBar = createStatusBar();
+
+        mainContainer.add(navigationPanel, BorderLayout.NORTH);
+        mainContainer.add(new JScrollPane(displayArea), BorderLayout.CENTER);
+        mainContainer.add(statusBar, BorderLayout.SOUTH);
+
+        setContentPane(mainContainer);
+        setupActionListeners();
+        updateNavigationButtons();
+        showHomePage();
+    }
+
+    private JPanel createToolbarPanel() {
+        JPanel toolbarPanel = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                Graphics2D g2d = (Graphics2D) g.create();
+                int w = getWidth();
+                int h = getHeight();
+                GradientPaint gp = new GradientPaint(
+                        0, 0, TOOLBAR_GRADIENT_START,
+                        0, h, TOOLBAR_GRADIENT_END);
+                g2d.setPaint(gp);
+                g2d.fillRect(0, 0, w, h);
+                g2d.dispose();
+            }
+        };
+        toolbarPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 2, 2));
+        toolbarPanel.setBorder(new EmptyBorder(5, 5, 5, 5));
+        toolbarPanel.setPreferredSize(new Dimension(getWidth(), 50));
+
+        backButton = createToolbarButton("[b]", "Back");
+        forwardButton = createToolbarButton("[f]", "Forward");
+        refreshButton = createToolbarButton("[r]", "Refresh");
+        homeButton = createToolbarButton("[h]", "Home");
+
+        toolbarPanel.add(backButton);
+        toolbarPanel.add(forwardButton);
+        toolbarPanel.add(refreshButton);
+        toolbarPanel.add(homeButton);
+
+        return toolbarPanel;
+    }
+
+    private JButton createToolbarButton(String text, String tooltip) {
+        JButton button = new JButton(text) {
+            {
+                setContentAreaFilled(false);
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2d = (Graphics2D) g.create();
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                // Background
+                if (getModel().isPressed()) {
+                    g2d.setColor(BUTTON_PRESSED_COLOR);
+                } else if (getModel().isRollover()) {
+                    g2d.setColor(BUTTON_HOVER_COLOR);
+                } else {
+                    g2d.setColor(new Color(0, 0, 0, 0));
+                }
+                g2d.fillRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 5, 5);
+
+                // Text
+                g2d.setColor(Color.WHITE);
+                g2d.setFont(new Font("Arial", Font.BOLD, 18));
+                FontMetrics fm = g2d.getFontMetrics();
+                int x = (getWidth() - fm.stringWidth(text)) / 2;
+                int y = ((getHeight() - fm.getHeight()) / 2) + fm.getAscent();
+                g2d.drawString(text, x, y);
+
+                g2d.dispose();
+            }
+        };
+
+        button.setPreferredSize(new Dimension(40, 40));
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.setBorderPainted(false);
+        button.setToolTipText(tooltip);
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+
+        return button;
+    }
+
+    private JPanel createAddressPanel() {
+        JPanel addressPanel = new JPanel(new BorderLayout(5, 0));
+        addressPanel.setBackground(TOOLBAR_GRADIENT_END);
+        addressPanel.setBorder(new EmptyBorder(5, 5, 10, 5));
+
+        addressBar = new JTextField();
+        addressBar.setPreferredSize(new Dimension(0, 30));
+        addressBar.setBorder(BorderFactory.createCompoundBorder(
+                new LineBorder(new Color(70, 73, 75)),
+                new EmptyBorder(5, 5, 5, 5)));
+        addressBar.setFont(new Font("Arial", Font.PLAIN, 14));
+        addressBar.setBackground(new Color(50, 53, 55));
+        addressBar.setForeground(Color.WHITE);
+        addressBar.setCaretColor(Color.WHITE);
+
+        goButton = new JButton("Go") {
+            {
+                setContentAreaFilled(false);
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2d = (Graphics2D) g.create();
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                if (getModel().isPressed()) {
+                    g2d.setColor(new Color(41, 128, 185));
+                } else if (getModel().isRollover()) {
+                    g2d.setColor(new Color(52, 152, 219));
+                } else {
+                    g2d.setColor(new Color(41, 128, 185));
+                }
+
+                g2d.fillRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 5, 5);
+
+                // Text
+                g2d.setColor(Color.WHITE);
+                g2d.setFont(new Font("Arial", Font.BOLD, 14));
+                FontMetrics fm = g2d.getFontMetrics();
+                int x = (getWidth() - fm.stringWidth("Go")) / 2;
+                int y = ((getHeight() - fm.getHeight()) / 2) + fm.getAscent();
+                g2d.drawString("Go", x, y);
+
+                g2d.dispose();
+            }
+        };
+        goButton.setPreferredSize(new Dimension(50, 30));
+        goButton.setFocusPainted(false);
+        goButton.setBorderPainted(false);
+        goButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+
+        addressPanel.add(addressBar, BorderLayout.CENTER);
+        addressPanel.add(goButton, BorderLayout.EAST);
+
+        return addressPanel;
+    }
+
+    private void setupDisplayArea() {
+        displayArea = new JEditorPane();
+        displayArea.setEditable(false);
+        displayArea.setContentType("text/html");
+        displayArea.putClientProperty(JEditorPane.HONOR_DISPLAY_PROPERTIES, Boolean.TRUE);
+        displayArea.setFont(new Font("Arial", Font.PLAIN, 14));
+        displayArea.setBorder(new EmptyBorder(10, 10, 10, 10));
+        displayArea.setBackground(Color.WHITE);
+
+        displayArea.addHyperlinkListener(e -> {
+            if (e.getEventType() == javax.swing.event.HyperlinkEvent.EventType.ACTIVATED) {
+                navigateTo(e.getURL().toString());
+            } else if (e.getEventType() == javax.swing.event.HyperlinkEvent.EventType.ENTERED) {
+                statusLabel.setText(e.getURL().toString());
+                displayArea.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+                if (prefetcher != null) {
+                    Document document = displayArea.getDocument();
+                    prefetcher.hovered(e.getURL(),
+                            document instanceof HTMLDocument ? ((HTMLDocument) document).getBase() : null);
+                }
+            } else if (e.getEventType() == javax.swing.event.HyperlinkEvent.EventType.EXITED) {
+                statusLabel.setText(" ");
+                displayArea.setCursor(Cursor.getDefaultCursor());
+                if (prefetcher != null) {
+                    prefetcher.exited();
+                    updatePrefetchStatistics();
+                }
+            }
+        });
+    }
+
+    private static final String WELCOME_HTML = "<html>" +
+            "<head>" +
+            "<style>" +
+            "body { font-family: Arial, sans-serif; background-color: #f5f5f5; margin: 0; padding: 40px; }" +
+            ".container { max-width: 800px; margin: 0 auto; background: white; padding: 40px; " +
+            "border-radius: 10px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }" +
+            "h1 { color: #2c3e50; text-align: center; margin-bottom: 30px; }" +
+            "p { color: #34495e; line-height: 1.6; font-size: 16px; text-align: center; }" +
+            ".highlight { color: #3498db; font-weight: bold; }" +
+            "</style>" +
+            "</head>" +
+            "<body>" +
+            "<div class='container'>" +
+            "<h1>Bienvenue dans votre navigateur</h1>" +
+            "<p>Pour commencer, <span class='highlight'>connectez-vous au serveur</span> en utilisant la barre d'adresse ci-dessus.</p>"
+            +
+            "</div>" +
+            "</body>" +
+            "</html>";
+
+    private JPanel createStatusBar() {
+        JPanel statusBar = new JPanel(new BorderLayout());
+        statusBar.setBorder(new EmptyBorder(3, 5, 3, 5));
+        statusBar.setBackground(new Color(240, 240, 240));
+
+        statusLabel = new JLabel(" ");
+        statusLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+
+        loadingProgress = new JProgressBar();
+        loadingProgress.setPreferredSize(new Dimension(100, 15));
+        loadingProgress.setVisible(false);
+
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        statusBar.add(loadingProgress, BorderLayout.EAST);
+
+        return statusBar;
+    }
+
+    private void setupActionListeners() {
+        goButton.addActionListener(e -> navigateTo(addressBar.getText()));
+        backButton.addActionListener(e -> navigateBack());
+        forwardButton.addActionListener(e -> navigateForward());
+        refreshButton.addActionListener(e -> refreshPage());
+        homeButton.addActionListener(e -> showHomePage());
+        addressBar.addActionListener(e -> navigateTo(addressBar.getText()));
+    }
+
+    private void navigateTo(String urlString) {
+        load(urlString, true);
+    }
+
+    // Charge une page du réseau ; une copie en cache est revalidée plutôt que téléchargée à nouveau
+    private void load(String urlString, boolean addToHistory) {
+        cancelPendingNavigation();
+
+        URI uri;
+        try {
+            uri = new URI(urlString.trim());
+        } catch (URISyntaxException e) {
+            displayArea.setText("Error: " + e.getMessage());
+            return;
+        }
+
+        Navigation navigation = new Navigation(urlString, addToHistory);
+        pendingNavigation = navigation;
+        loadingProgress.setVisible(true);
+        loadingProgress.setIndeterminate(true);
+        statusLabel.setText("Loading " + urlString + "...");
+
+        // Lien préchargé au survol : page déjà reçue ou en cours de réception
+        CompletableFuture<PageCache.Entry> prefetched = prefetcher != null ? prefetcher.take(urlString) : null;
+        if (prefetched != null) {
+            navigation.opening = prefetched;
+            prefetched.whenComplete((entry, error) -> SwingUtilities.invokeLater(() -> {
+                if (pendingNavigation != navigation) {
+                    return;
+                }
+                if (error != null) {
+                    // Préchargement sans résultat : chargement normal
+                    pendingNavigation = null;
+                    load(urlString, addToHistory);
+                    return;
+                }
+                pageCache.put(entry);
+                display(navigation, entry);
+            }));
+            updatePrefetchStatistics();
+            return;
+        }
+
+        PageCache.Entry cached = pageCache.get(urlString);
+        CompletableFuture<PageFetcher.Stream> opening;
+        try {
+            opening = PageFetcher.open(uri, cached != null ? cached.validators() : Collections.emptyMap());
+        } catch (IllegalArgumentException e) {
+            opening = CompletableFuture.failedFuture(e);
+        }
+        navigation.opening = opening;
+        opening.whenComplete((stream, error) -> SwingUtilities.invokeLater(() -> {
+            // Réponse d'une navigation remplacée entre-temps : ignorée
+            if (pendingNavigation != navigation) {
+                if (stream != null) {
+                    stream.close();
+                }
+                return;
+            }
+            if (error != null) {
+                fail(navigation, error);
+                return;
+            }
+            navigation.stream = stream;
+            // 304 : la copie gardée est toujours valable
+            if (stream.status == 304 && cached != null) {
+                stream.close();
+                pageCache.put(cached);
+                display(navigation, cached);
+                return;
+            }
+            receive(navigation, stream);
+        }));
+    }
+
+    // Corps lu et analysé hors de l'EDT. Une grande page (ou de taille inconnue) est installée vide et
+    // se remplit au fil de la lecture ; une petite page est construite à part puis remplace l'ancienne.
+    private void receive(Navigation navigation, PageFetcher.Stream stream) {
+        boolean progressive = stream.contentLength < 0 || stream.contentLength > PROGRESSIVE_THRESHOLD;
+        Document document = prepareDocument(stream.contentType, stream.uri.toString(), progressive);
+        EditorKit kit = displayArea.getEditorKit();
+        if (stream.contentLength > 0) {
+            loadingProgress.setIndeterminate(false);
+            loadingProgress.setValue(0);
+        }
+        long copyLimit = PageCache.isCacheable(stream.status, stream.headers) ? pageCache.maxEntrySize() / 2 : 0;
+
+        DOCUMENT_BUILDER.execute(() -> {
+            String body;
+            try (CopyingReader reader = new CopyingReader(
+                    stream.reader(received -> reportProgress(navigation, received, stream.contentLength)),
+                    copyLimit)) {
+                kit.read(reader, document, 0);
+                body = reader.copied();
+            } catch (IOException | BadLocationException e) {
+                stream.close();
+                SwingUtilities.invokeLater(() -> fail(navigation, e));
+                return;
+            }
+            PageCache.Entry entry = body != null
+                    ? PageCache.entryOf(navigation.urlString, stream.status, stream.contentType, stream.headers, body)
+                    : null;
+            if (entry != null) {
+                pageCache.put(entry);
+            } else {
+                pageCache.remove(navigation.urlString);
+            }
+            SwingUtilities.invokeLater(() -> finish(navigation, document, progressive));
+        });
+    }
+
+    // Page en cache : analysée hors de l'EDT comme une page reçue
+    private void display(Navigation navigation, PageCache.Entry entry) {
+        Document document = prepareDocument(entry.contentType, entry.uri, false);
+        EditorKit kit = displayArea.getEditorKit();
+        DOCUMENT_BUILDER.execute(() -> {
+            try {
+                kit.read(new StringReader(entry.body), document, 0);
+            } catch (IOException | BadLocationException e) {
+                SwingUtilities.invokeLater(() -> fail(navigation, e));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> finish(navigation, document, false));
+        });
+    }
+
+    // Document vide du bon type ; installé tout de suite pour un affichage progressif
+    private Document prepareDocument(String contentType, String base, boolean install) {
+        displayArea.setContentType(contentType.startsWith("text/")
+                && !contentType.equals("text/html") ? "text/plain" : "text/html");
+        Document document = displayArea.getEditorKit().createDefaultDocument();
+        if (document instanceof HTMLDocument) {
+            HTMLDocument html = (HTMLDocument) document;
+            // Corps déjà décodé : une balise meta charset ne doit pas relancer la lecture
+            html.putProperty("IgnoreCharsetDirective", Boolean.TRUE);
+            try {
+                html.setBase(new URL(base));
+            } catch (MalformedURLException e) {
+                // Liens relatifs non résolus
+            }
+            // Document hors écran : inséré en un seul bloc plutôt que par morceaux
+            if (!install) {
+                html.setTokenThreshold(Integer.MAX_VALUE);
+            }
+        }
+        if (install) {
+            displayArea.setDocument(document);
+        }
+        return document;
+    }
+
+    private void finish(Navigation navigation, Document document, boolean installed) {
+        if (pendingNavigation != navigation) {
+            return;
+        }
+        pendingNavigation = null;
+        if (!installed) {
+            displayArea.setDocument(document);
+        }
+        if (navigation.addToHistory) {
+            updateHistory(navigation.urlString);
+        }
+        loadingProgress.setVisible(false);
+        statusLabel.setText(" ");
+    }
+
+    private void fail(Navigation navigation, Throwable error) {
+        if (pendingNavigation != navigation) {
+            return;
+        }
+        pendingNavigation = null;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        displayArea.setText("Error: " + cause.getMessage());
+        loadingProgress.setVisible(false);
+        statusLabel.setText(" ");
+    }
+
+    // Appelé par le thread de lecture ; l'EDT n'est sollicité qu'à chaque point de pourcentage
+    private void reportProgress(Navigation navigation, long received, long contentLength) {
+        if (contentLength <= 0) {
+            return;
+        }
+        int percent = (int) Math.min(100, received * 100 / contentLength);
+        if (percent != navigation.percent) {
+            navigation.percent = percent;
+            SwingUtilities.invokeLater(() -> {
+                if (pendingNavigation == navigation) {
+                    loadingProgress.setValue(percent);
+                }
+            });
+        }
+    }
+
+    // Compteurs du préchargement, dans l'infobulle de la barre d'état
+    private void updatePrefetchStatistics() {
+        statusLabel.setToolTipText("Prefetch: " + prefetcher.getHits() + " hits, " + prefetcher.getWasted()
+                + " wasted");
+    }
+
+    // Une seule navigation à la fois : la précédente est abandonnée, connexion comprise
+    private void cancelPendingNavigation() {
+        if (pendingNavigation != null) {
+            pendingNavigation.cancel();
+            pendingNavigation = null;
+            loadingProgress.setVisible(false);
+            statusLabel.setText(" ");
+        }
+    }
+
+    private void showHomePage() {
+        cancelPendingNavigation();
+        showWelcome();
+        updateHistory("home");
+    }
+
+    private void showWelcome() {
+        displayArea.setContentType("text/html");
+        displayArea.setText(WELCOME_HTML);
+        addressBar.setText(HOME_PAGE);
+    }
+
+    private void navigateBack() {
+        if (currentHistoryIndex > 0) {
+            currentHistoryIndex--;
+            showHistoryEntry();
+        }
+    }
+
+    private void navigateForward() {
+        if (currentHistoryIndex < history.size() - 1) {
+            currentHistoryIndex++;
+            showHistoryEntry();
+        }
+    }
+
+    // Entrée courante de l'historique, affichée depuis le cache sans accès au réseau si possible
+    private void showHistoryEntry() {
+        updateNavigationButtons();
+        String urlString = history.get(currentHistoryIndex);
+        cancelPendingNavigation();
+        if ("home".equals(urlString)) {
+            showWelcome();
+            return;
+        }
+        addressBar.setText(urlString);
+        PageCache.Entry cached = pageCache.get(urlString);
+        if (cached != null) {
+            Navigation navigation = new Navigation(urlString, false);
+            pendingNavigation = navigation;
+            display(navigation, cached);
+        } else {
+            load(urlString, false);
+        }
+    }
+
+    // Revalide la page courante (If-None-Match / If-Modified-Since) sans l'ajouter à l'historique
+    private void refreshPage() {
+        if (history.isEmpty()) {
+            return;
+        }
+        String urlString = history.get(currentHistoryIndex);
+        if ("home".equals(urlString)) {
+            showWelcome();
+        } else {
+            load(urlString, false);
+        }
+    }
+
+    private void updateHistory(String urlString) {
+        if (currentHistoryIndex < history.size() - 1) {
+            history = history.subList(0, currentHistoryIndex + 1);
+        }
+        history.add(urlString);
+        currentHistoryIndex++;
+        updateNavigationButtons();
+    }
+
+    private void updateNavigationButtons() {
+        backButton.setEnabled(currentHistoryIndex > 0);
+        forwardButton.setEnabled(currentHistoryIndex < history.size() - 1);
+        refreshButton.setEnabled(!history.isEmpty());
+        homeButton.setEnabled(true);
+    }
+
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> {
+            EnhancedNetworkBrowser browser = new EnhancedNetworkBrowser();
+            browser.setVisible(true);
+        });
+    }
+}
\ No newline at end of file
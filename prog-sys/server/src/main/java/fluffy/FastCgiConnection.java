@@ -0,0 +1,169 @@
+package fluffy;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Connexion FastCGI (rôle RESPONDER) réutilisée entre les requêtes grâce à FCGI_KEEP_CONN
+class FastCgiConnection implements Closeable {
+    private static final int VERSION = 1;
+    private static final int BEGIN_REQUEST = 1;
+    private static final int END_REQUEST = 3;
+    private static final int PARAMS = 4;
+    private static final int STDIN = 5;
+    private static final int STDOUT = 6;
+    private static final int STDERR = 7;
+    private static final int GET_VALUES = 9;
+    private static final int GET_VALUES_RESULT = 10;
+    private static final int ROLE_RESPONDER = 1;
+    private static final int FLAG_KEEP_CONN = 1;
+    private static final int REQUEST_ID = 1;
+    private static final int MAX_CONTENT = 0xFFFF;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[MAX_CONTENT];
+
+    FastCgiConnection(String host, int port, int connectTimeoutMs, int readTimeoutMs) throws IOException {
+        socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            socket.setSoTimeout(readTimeoutMs);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 16 * 1024));
+            out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // Exécute une requête et renvoie le code de sortie de l'application
+    int execute(Map<String, String> params, InputStream stdin, OutputStream stdout, OutputStream stderr)
+            throws IOException {
+        writeRecord(BEGIN_REQUEST, new byte[] { 0, ROLE_RESPONDER, FLAG_KEEP_CONN, 0, 0, 0, 0, 0 }, 8);
+        writeStream(PARAMS, encodeParams(params));
+        if (stdin != null) {
+            int read;
+            while ((read = stdin.read(buffer, 0, buffer.length)) > 0) {
+                writeRecord(STDIN, buffer, read);
+            }
+        }
+        writeRecord(STDIN, buffer, 0);
+        out.flush();
+
+        while (true) {
+            int type = readHeader();
+            int length = in.readUnsignedShort();
+            int padding = in.readUnsignedByte();
+            in.readUnsignedByte();
+            in.readFully(buffer, 0, length);
+            in.skipNBytes(padding);
+
+            switch (type) {
+                case STDOUT:
+                    stdout.write(buffer, 0, length);
+                    // Plus rien en attente : ce qui est reçu part vers le client
+                    if (in.available() == 0) {
+                        stdout.flush();
+                    }
+                    break;
+                case STDERR:
+                    stderr.write(buffer, 0, length);
+                    break;
+                case END_REQUEST:
+                    return ((buffer[0] & 0xFF) << 24) | ((buffer[1] & 0xFF) << 16)
+                            | ((buffer[2] & 0xFF) << 8) | (buffer[3] & 0xFF);
+                default:
+                    // Enregistrement inconnu : ignoré
+            }
+        }
+    }
+
+    // Vérification de santé : FCGI_GET_VALUES doit recevoir une réponse
+    boolean ping() {
+        try {
+            byte[] query = encodeParams(Map.of("FCGI_MAX_CONNS", ""));
+            writeRecord(GET_VALUES, 0, query, 0, query.length);
+            out.flush();
+            int type = readHeader();
+            int length = in.readUnsignedShort();
+            int padding = in.readUnsignedByte();
+            in.readUnsignedByte();
+            in.skipNBytes(length + padding);
+            return type == GET_VALUES_RESULT;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private int readHeader() throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported FastCGI version: " + version);
+        }
+        int type = in.readUnsignedByte();
+        in.readUnsignedShort(); // identifiant de requête
+        return type;
+    }
+
+    private void writeStream(int type, byte[] content) throws IOException {
+        for (int offset = 0; offset < content.length; offset += MAX_CONTENT) {
+            int length = Math.min(MAX_CONTENT, content.length - offset);
+            writeRecord(type, REQUEST_ID, content, offset, length);
+        }
+        writeRecord(type, content, 0);
+    }
+
+    private void writeRecord(int type, byte[] content, int length) throws IOException {
+        writeRecord(type, REQUEST_ID, content, 0, length);
+    }
+
+    private void writeRecord(int type, int requestId, byte[] content, int offset, int length) throws IOException {
+        int padding = (8 - (length & 7)) & 7;
+        out.write(VERSION);
+        out.write(type);
+        out.write(requestId >> 8);
+        out.write(requestId);
+        out.write(length >> 8);
+        out.write(length);
+        out.write(padding);
+        out.write(0);
+        out.write(content, offset, length);
+        for (int i = 0; i < padding; i++) {
+            out.write(0);
+        }
+    }
+
+    private static byte[] encodeParams(Map<String, String> params) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(512);
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            byte[] name = param.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = param.getValue().getBytes(StandardCharsets.UTF_8);
+            writeLength(encoded, name.length);
+            writeLength(encoded, value.length);
+            encoded.write(name, 0, name.length);
+            encoded.write(value, 0, value.length);
+        }
+        return encoded.toByteArray();
+    }
+
+    private static void writeLength(ByteArrayOutputStream out, int length) {
+        if (length < 128) {
+            out.write(length);
+        } else {
+            out.write((length >> 24) | 0x80);
+            out.write(length >> 16);
+            out.write(length >> 8);
+            out.write(length);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
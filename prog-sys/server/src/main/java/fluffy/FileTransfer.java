@@ -0,0 +1,53 @@
+package fluffy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Envoi d'une portion de fichier sans charger le fichier entier en mémoire
+final class FileTransfer {
+    // Flux de réponse adossés à un canal : FileChannel.transferTo (sendfile) est utilisé directement
+    interface ChannelSink {
+        long transferFrom(FileChannel channel, long position, long count) throws IOException;
+    }
+
+    private static final BufferPool BUFFERS = new BufferPool(64 * 1024, 256, false);
+
+    private FileTransfer() {
+    }
+
+    static void transfer(FileChannel channel, long position, long count, OutputStream out) throws IOException {
+        if (out instanceof ChannelSink) {
+            ChannelSink sink = (ChannelSink) out;
+            while (count > 0) {
+                long sent = sink.transferFrom(channel, position, count);
+                if (sent <= 0 && position >= channel.size()) {
+                    throw new EOFException("File truncated during transfer");
+                }
+                position += sent;
+                count -= sent;
+            }
+            return;
+        }
+
+        // Sinon : lectures positionnelles dans un tampon du pool, mémoire constante par requête
+        ByteBuffer buffer = BUFFERS.acquire();
+        try {
+            byte[] bytes = buffer.array();
+            while (count > 0) {
+                buffer.clear().limit((int) Math.min(bytes.length, count));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("File truncated during transfer");
+                }
+                out.write(bytes, 0, read);
+                position += read;
+                count -= read;
+            }
+        } finally {
+            BUFFERS.release(buffer);
+        }
+    }
+}
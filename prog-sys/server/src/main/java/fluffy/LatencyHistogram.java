@@ -0,0 +1,90 @@
+package fluffy;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histogramme de latences à échelle log-linéaire (principe de HdrHistogram)
+//
+// Valeurs en microsecondes : exactes jusqu'à 15, puis 8 intervalles par puissance de deux (environ
+// 12 % de précision) jusqu'à plusieurs jours. L'enregistrement n'alloue rien et ne prend aucun verrou.
+class LatencyHistogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+    // 2^40 µs : environ 12 jours
+    private static final int BUCKET_COUNT = (40 - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < 2 * SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return Math.min(shift * SUB_BUCKETS + (int) (micros >>> shift), BUCKET_COUNT - 1);
+    }
+
+    // Plus grande valeur rangée dans cet intervalle
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    long getCount() {
+        return totalCount.sum();
+    }
+
+    long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    // Copie des compteurs pour un export cohérent (les enregistrements continuent pendant ce temps)
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    // Nombre de valeurs dont l'intervalle est entièrement inférieur ou égal à la limite
+    static long countAtOrBelow(long[] snapshot, long micros) {
+        long count = 0;
+        for (int i = 0; i < snapshot.length && highestValue(i) <= micros; i++) {
+            count += snapshot[i];
+        }
+        return count;
+    }
+
+    // Valeur (µs) en dessous de laquelle se trouve la fraction demandée des mesures
+    static long valueAtQuantile(long[] snapshot, double quantile) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(snapshot.length - 1);
+    }
+}
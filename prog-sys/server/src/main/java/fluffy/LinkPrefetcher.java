@@ -0,0 +1,219 @@
+package fluffy;
+
+import javax.swing.Timer;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Préchargement des liens survolés : après un court délai sur un lien du même site, la page est
+// téléchargée en arrière-plan pour qu'un clic l'affiche sans attendre le réseau
+//
+// Bornes : nombre de préchargements simultanés, octets gardés (les plus anciens sont abandonnés),
+// taille d'une page et durée de validité. Quitter le lien avant la fin abandonne le téléchargement.
+final class LinkPrefetcher {
+    private static final class Prefetch {
+        final CompletableFuture<PageCache.Entry> result;
+        final long startedAt = System.nanoTime();
+        long size;
+
+        Prefetch(CompletableFuture<PageCache.Entry> result) {
+            this.result = result;
+        }
+    }
+
+    private final long maxBytes;
+    private final int maxConcurrent;
+    private final long ttlNanos;
+    private final ExecutorService readers;
+    private final Timer dwellTimer;
+    private final LinkedHashMap<String, Prefetch> prefetches = new LinkedHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong wasted = new AtomicLong();
+    private String hovered;
+    private long bytes;
+    private int inFlight;
+
+    private LinkPrefetcher(int dwellMillis, int maxConcurrent, long maxBytes, long ttlMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.readers = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "link-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dwellTimer = new Timer(dwellMillis, e -> start(hovered));
+        this.dwellTimer.setRepeats(false);
+    }
+
+    // browser.prefetch.enabled, .dwell (ms), .concurrency, .bytes, .ttl (ms) ; null si désactivé
+    static LinkPrefetcher fromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty("browser.prefetch.enabled", "true").trim())) {
+            return null;
+        }
+        return new LinkPrefetcher(Integer.getInteger("browser.prefetch.dwell", 120),
+                Math.max(1, Integer.getInteger("browser.prefetch.concurrency", 2)),
+                Long.getLong("browser.prefetch.bytes", 4L * 1024 * 1024),
+                Long.getLong("browser.prefetch.ttl", 30_000L));
+    }
+
+    // Survol d'un lien (EDT) : seuls les liens http(s) du site de la page affichée sont préchargés
+    void hovered(URL link, URL page) {
+        dwellTimer.stop();
+        hovered = null;
+        if (link == null || page == null || !link.getProtocol().startsWith("http")
+                || !link.getProtocol().equals(page.getProtocol()) || !link.getHost().equalsIgnoreCase(page.getHost())
+                || link.getPort() != page.getPort() || sameDocument(link, page)) {
+            return;
+        }
+        hovered = link.toString();
+        dwellTimer.restart();
+    }
+
+    // Fin du survol (EDT) : délai annulé, téléchargement en cours abandonné
+    void exited() {
+        dwellTimer.stop();
+        String link = hovered;
+        hovered = null;
+        if (link == null) {
+            return;
+        }
+        synchronized (this) {
+            Prefetch prefetch = prefetches.get(link);
+            if (prefetch != null && !prefetch.result.isDone()) {
+                prefetches.remove(link);
+                prefetch.result.cancel(true);
+            }
+        }
+    }
+
+    // Page préchargée (terminée ou en cours) pour un clic sur ce lien ; null s'il n'y en a pas
+    synchronized CompletableFuture<PageCache.Entry> take(String url) {
+        Prefetch prefetch = prefetches.remove(url);
+        if (prefetch == null) {
+            return null;
+        }
+        bytes -= prefetch.size;
+        if (System.nanoTime() - prefetch.startedAt > ttlNanos || prefetch.result.isCompletedExceptionally()) {
+            wasted.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return prefetch.result;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getWasted() {
+        return wasted.get();
+    }
+
+    private void start(String url) {
+        if (url == null) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return;
+        }
+        CompletableFuture<PageCache.Entry> result;
+        synchronized (this) {
+            expire();
+            if (prefetches.containsKey(url) || inFlight >= maxConcurrent) {
+                return;
+            }
+            inFlight++;
+            CompletableFuture<PageFetcher.Stream> opening = PageFetcher.open(uri, Collections.emptyMap());
+            result = opening.thenApplyAsync(stream -> read(url, stream), readers);
+            result.whenComplete((entry, error) -> {
+                if (result.isCancelled()) {
+                    opening.cancel(true);
+                    opening.thenAccept(PageFetcher.Stream::close);
+                }
+                completed(url, result, entry);
+            });
+            prefetches.put(url, new Prefetch(result));
+        }
+    }
+
+    // Corps lu en entier, dans la limite d'octets ; au-delà, la page n'est pas gardée
+    private PageCache.Entry read(String url, PageFetcher.Stream stream) {
+        StringBuilder body = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (Reader reader = stream.reader(received -> { })) {
+            int n;
+            while ((n = reader.read(buffer)) > 0) {
+                body.append(buffer, 0, n);
+                if (2L * body.length() > maxBytes) {
+                    throw new IllegalStateException("Page larger than the prefetch budget: " + url);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Prefetch of " + url + " failed", e);
+        }
+        // Erreur ou réponse à ne pas garder : le clic passera par le réseau
+        PageCache.Entry entry = PageCache.entryOf(url, stream.status, stream.contentType, stream.headers,
+                body.toString());
+        if (entry == null) {
+            throw new IllegalStateException("Response not reusable: " + url);
+        }
+        return entry;
+    }
+
+    private synchronized void completed(String url, CompletableFuture<PageCache.Entry> result, PageCache.Entry entry) {
+        inFlight--;
+        Prefetch prefetch = prefetches.get(url);
+        if (prefetch == null || prefetch.result != result) {
+            return;
+        }
+        if (entry == null) {
+            prefetches.remove(url);
+            return;
+        }
+        prefetch.size = entry.size;
+        bytes += entry.size;
+        // Budget dépassé : les préchargements terminés les plus anciens sont abandonnés
+        for (Iterator<Prefetch> it = prefetches.values().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            Prefetch oldest = it.next();
+            if (oldest.result.isDone()) {
+                it.remove();
+                bytes -= oldest.size;
+                wasted.incrementAndGet();
+            }
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<String, Prefetch>> it = prefetches.entrySet().iterator(); it.hasNext(); ) {
+            Prefetch prefetch = it.next().getValue();
+            if (prefetch.result.isDone() && now - prefetch.startedAt > ttlNanos) {
+                it.remove();
+                bytes -= prefetch.size;
+                wasted.incrementAndGet();
+            }
+        }
+    }
+
+    // Lien vers la page affichée, éventuellement vers une ancre
+    private static boolean sameDocument(URL link, URL page) {
+        return Objects.equals(link.getPath(), page.getPath()) && Objects.equals(link.getQuery(), page.getQuery());
+    }
+}
@@ -0,0 +1,505 @@
+package fluffy;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Générateur de charge HTTP sans interface, à lancer contre une instance locale
+//
+// Boucle fermée (load.rate=0) : chaque connexion renvoie une requête dès la réponse reçue.
+// Boucle ouverte (load.rate > 0) : les requêtes partent à heure fixe, quelle que soit la vitesse du
+// serveur. La latence corrigée est mesurée depuis l'heure prévue et non depuis l'envoi réel : une
+// requête retardée parce que toutes les connexions étaient occupées compte son attente (correction
+// de l'omission coordonnée, comme wrk2). La latence de service ne compte que l'aller-retour.
+public class LoadGenerator {
+    private static final String CONFIG_FILE = "load-config.properties";
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.9, 0.99, 0.999, 0.9999, 1.0 };
+
+    private final String host;
+    private final int port;
+    private final String[] paths;
+    private final int[] cumulativeWeights;
+    private final int concurrency;
+    private final double rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final boolean keepAlive;
+    private final int timeoutMillis;
+
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    private final LatencyHistogram service = new LatencyHistogram();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(600);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder completedInterval = new LongAdder();
+    private final LongAdder sentTotal = new LongAdder();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private long startNanos;
+    private long measureStartNanos;
+    private long endNanos;
+
+    LoadGenerator(Properties config) {
+        URI target = URI.create(config.getProperty("load.target", "http://127.0.0.1:8000").trim());
+        if (!"http".equalsIgnoreCase(target.getScheme()) || target.getHost() == null) {
+            throw new IllegalArgumentException("load.target must be an http:// URL: " + target);
+        }
+        host = target.getHost();
+        port = target.getPort() > 0 ? target.getPort() : 80;
+
+        // Mélange d'URL : chemins séparés par des virgules, poids optionnel après '*'
+        List<String> pathList = new ArrayList<>();
+        List<Integer> weightList = new ArrayList<>();
+        for (String entry : config.getProperty("load.urls", "/").split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int weight = 1;
+            int star = entry.lastIndexOf('*');
+            if (star > 0) {
+                weight = Integer.parseInt(entry.substring(star + 1).trim());
+                entry = entry.substring(0, star).trim();
+            }
+            if (!entry.startsWith("/") || weight <= 0) {
+                throw new IllegalArgumentException("Invalid entry in load.urls: " + entry);
+            }
+            pathList.add(entry);
+            weightList.add(weight);
+        }
+        if (pathList.isEmpty()) {
+            throw new IllegalArgumentException("load.urls is empty");
+        }
+        paths = pathList.toArray(new String[0]);
+        cumulativeWeights = new int[paths.length];
+        int total = 0;
+        for (int i = 0; i < paths.length; i++) {
+            total += weightList.get(i);
+            cumulativeWeights[i] = total;
+        }
+
+        concurrency = Math.max(1, Integer.parseInt(config.getProperty("load.concurrency", "8").trim()));
+        rate = Double.parseDouble(config.getProperty("load.rate", "0").trim());
+        durationNanos = (long) (Double.parseDouble(config.getProperty("load.duration", "10").trim()) * 1e9);
+        warmupNanos = (long) (Double.parseDouble(config.getProperty("load.warmup", "2").trim()) * 1e9);
+        keepAlive = Boolean.parseBoolean(config.getProperty("load.keepalive", "true").trim());
+        timeoutMillis = Integer.parseInt(config.getProperty("load.timeout", "5000").trim());
+    }
+
+    String describe() {
+        return "http://" + host + ":" + port + ", "
+                + (rate > 0 ? String.format(Locale.ROOT, "open loop at %.0f req/s", rate) : "closed loop")
+                + ", " + concurrency + " connections, "
+                + String.format(Locale.ROOT, "%.1f s (+%.1f s warm-up)", durationNanos / 1e9, warmupNanos / 1e9)
+                + ", " + (keepAlive ? "keep-alive" : "one connection per request")
+                + ", " + paths.length + " URL(s)";
+    }
+
+    void run() throws InterruptedException {
+        startNanos = System.nanoTime();
+        measureStartNanos = startNanos + warmupNanos;
+        endNanos = measureStartNanos + durationNanos;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(this::work, "load-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        // Débit de chaque seconde, pour voir la montée en charge et les décrochages
+        long nextTick = startNanos + 1_000_000_000L;
+        int second = 0;
+        while (System.nanoTime() < endNanos) {
+            LockSupport.parkNanos(nextTick - System.nanoTime());
+            if (System.nanoTime() >= nextTick) {
+                second++;
+                nextTick += 1_000_000_000L;
+                System.out.printf(Locale.ROOT, "%4d s  %8d req/s%s%n", second, completedInterval.sumThenReset(),
+                        nextTick - 1_000_000_000L <= measureStartNanos ? "  (warm-up)" : "");
+            }
+        }
+        // Les requêtes en cours ont jusqu'au délai d'expiration pour se terminer
+        long joinDeadline = System.currentTimeMillis() + timeoutMillis + 1000;
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, joinDeadline - System.currentTimeMillis()));
+        }
+    }
+
+    private void work() {
+        byte[] buffer = new byte[16384];
+        Connection connection = null;
+        try {
+            while (true) {
+                long intended;
+                if (rate > 0) {
+                    intended = startNanos + (long) (sequence.getAndIncrement() * 1e9 / rate);
+                    if (intended >= endNanos) {
+                        return;
+                    }
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intended = System.nanoTime();
+                    if (intended >= endNanos) {
+                        return;
+                    }
+                }
+
+                // En surcharge, les requêtes en retard à la fin ne partent pas : report() les compte
+                long sent = System.nanoTime();
+                if (sent >= endNanos) {
+                    return;
+                }
+                // Mesurée dès l'envoi après l'échauffement, même si l'heure prévue tombait avant
+                boolean measured = sent >= measureStartNanos;
+                sentTotal.increment();
+                try {
+                    if (connection == null) {
+                        connection = new Connection();
+                    }
+                    int status = connection.exchange(nextPath(), buffer);
+                    long done = System.nanoTime();
+                    completedInterval.increment();
+                    if (measured) {
+                        corrected.record(done - intended);
+                        service.record(done - sent);
+                        statusCounts.incrementAndGet(status < 600 ? status : 0);
+                    }
+                    if (!connection.reusable) {
+                        connection.close();
+                        connection = null;
+                    }
+                } catch (IOException e) {
+                    if (measured) {
+                        errors.computeIfAbsent(classify(e), key -> new LongAdder()).increment();
+                    }
+                    if (connection != null) {
+                        connection.close();
+                        connection = null;
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    private String nextPath() {
+        if (paths.length == 1) {
+            return paths[0];
+        }
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return paths[i];
+            }
+        }
+        return paths[paths.length - 1];
+    }
+
+    private static String classify(IOException e) {
+        if (e instanceof SocketTimeoutException) {
+            return "timeout";
+        }
+        if (e instanceof ConnectException) {
+            return "connect: " + e.getMessage();
+        }
+        if (e instanceof EOFException) {
+            return "connection closed early";
+        }
+        return e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+    }
+
+    // Connexion HTTP/1.1 minimale : une requête GET à la fois, corps de réponse lu et jeté
+    private class Connection {
+        private final Socket socket = new Socket();
+        private final InputStream in;
+        private final OutputStream out;
+        private final StringBuilder line = new StringBuilder();
+        boolean reusable;
+
+        Connection() throws IOException {
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeoutMillis);
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            in = new BufferedInputStream(socket.getInputStream(), 16384);
+            out = socket.getOutputStream();
+            connectionsOpened.increment();
+        }
+
+        int exchange(String path, byte[] buffer) throws IOException {
+            String request = "GET " + path + " HTTP/1.1\r\n"
+                    + "Host: " + host + ":" + port + "\r\n"
+                    + "User-Agent: fluffy-load\r\n"
+                    + (keepAlive ? "" : "Connection: close\r\n")
+                    + "\r\n";
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            String statusLine = readLine();
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            long code = parseNumber(parts[1], 10, "status code");
+            if (code < 100 || code > 999) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            int status = (int) code;
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean close = !keepAlive || parts[0].equals("HTTP/1.0");
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                int colon = header.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = header.substring(0, colon).trim();
+                String value = header.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    contentLength = parseNumber(value, 10, "Content-Length");
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close |= value.equalsIgnoreCase("close");
+                }
+            }
+
+            if (status < 200 || status == 204 || status == 304) {
+                // Pas de corps (les réponses 1xx intermédiaires ne sont pas attendues pour un GET)
+            } else if (chunked) {
+                long size;
+                while ((size = parseNumber(chunkSize(readLine()), 16, "chunk size")) > 0) {
+                    skip(size, buffer);
+                    readLine();
+                }
+                while (!readLine().isEmpty()) {
+                    // Trailers ignorés
+                }
+            } else if (contentLength >= 0) {
+                skip(contentLength, buffer);
+            } else {
+                // Corps délimité par la fermeture de la connexion
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    bytesReceived.add(read);
+                }
+                close = true;
+            }
+            reusable = !close;
+            return status;
+        }
+
+        // Nombre lu dans la réponse : une valeur invalide est une erreur d'échange, pas une fin du worker
+        private long parseNumber(String value, int radix, String what) throws IOException {
+            try {
+                long number = Long.parseLong(value, radix);
+                if (number >= 0) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // Signalé ci-dessous
+            }
+            throw new IOException("Malformed " + what);
+        }
+
+        private String chunkSize(String sizeLine) {
+            int extension = sizeLine.indexOf(';');
+            return (extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim();
+        }
+
+        private void skip(long remaining, byte[] buffer) throws IOException {
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                remaining -= read;
+                bytesReceived.add(read);
+            }
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    void report() {
+        double seconds = durationNanos / 1e9;
+        long[] correctedSnapshot = corrected.snapshot();
+        long[] serviceSnapshot = service.snapshot();
+        long responses = corrected.getCount();
+        long failures = errors.values().stream().mapToLong(LongAdder::sum).sum();
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Requests: %d responses, %d errors in %.1f s (%.1f req/s)%n",
+                responses, failures, seconds, responses / seconds);
+        if (rate > 0) {
+            long scheduled = (long) Math.ceil((warmupNanos + durationNanos) * rate / 1e9);
+            long unsent = scheduled - sentTotal.sum();
+            if (unsent > scheduled / 100) {
+                System.out.printf(Locale.ROOT, "Warning: target rate %.0f req/s not reached, %d scheduled requests"
+                        + " never sent; latencies include the backlog%n", rate, unsent);
+            }
+        }
+        System.out.printf(Locale.ROOT, "Received: %.1f MB (%.1f MB/s), %d connections opened%n",
+                bytesReceived.sum() / 1e6, bytesReceived.sum() / 1e6 / seconds, connectionsOpened.sum());
+
+        StringBuilder codes = new StringBuilder();
+        for (int code = 0; code < 600; code++) {
+            long count = statusCounts.get(code);
+            if (count > 0) {
+                codes.append(codes.length() > 0 ? ", " : "").append(code).append('=').append(count);
+            }
+        }
+        System.out.println("Status: " + (codes.length() > 0 ? codes : "none"));
+        if (failures > 0) {
+            System.out.println("Errors:");
+            new TreeMap<>(errors).forEach((kind, count) -> System.out.printf("  %8d  %s%n", count.sum(), kind));
+        }
+        if (responses == 0) {
+            return;
+        }
+
+        System.out.println();
+        System.out.println(rate > 0 ? "Latency       corrected      service" : "Latency         service");
+        for (double quantile : QUANTILES) {
+            String label = quantile == 1.0 ? "max" : "p" + trimQuantile(quantile * 100);
+            if (rate > 0) {
+                System.out.printf(Locale.ROOT, "  %-8s %12s %12s%n", label,
+                        formatMicros(LatencyHistogram.valueAtQuantile(correctedSnapshot, quantile)),
+                        formatMicros(LatencyHistogram.valueAtQuantile(serviceSnapshot, quantile)));
+            } else {
+                System.out.printf(Locale.ROOT, "  %-8s %14s%n", label,
+                        formatMicros(LatencyHistogram.valueAtQuantile(serviceSnapshot, quantile)));
+            }
+        }
+        if (rate > 0) {
+            System.out.printf(Locale.ROOT, "  %-8s %12s %12s%n", "mean",
+                    formatMicros(corrected.getTotalMicros() / responses), formatMicros(service.getTotalMicros() / responses));
+        } else {
+            System.out.printf(Locale.ROOT, "  %-8s %14s%n", "mean", formatMicros(service.getTotalMicros() / responses));
+        }
+
+        // Histogramme par puissance de deux : nombre de réponses et part cumulée
+        System.out.println();
+        System.out.println(rate > 0 ? "Histogram (corrected latency)" : "Histogram (service latency)");
+        long[] snapshot = rate > 0 ? correctedSnapshot : serviceSnapshot;
+        long cumulative = 0;
+        long rowCount = 0;
+        for (int i = 0; i < snapshot.length && cumulative < responses; i++) {
+            rowCount += snapshot[i];
+            boolean rowEnd = i + 1 >= 16 && (i + 1) % 8 == 0;
+            if (rowEnd || i == snapshot.length - 1) {
+                if (rowCount > 0 || cumulative > 0) {
+                    cumulative += rowCount;
+                    int bar = (int) Math.round(40.0 * rowCount / responses);
+                    System.out.printf(Locale.ROOT, "  <= %10s %10d %7.3f%%  %s%n",
+                            formatMicros(LatencyHistogram.highestValue(i)), rowCount,
+                            100.0 * cumulative / responses, "#".repeat(bar));
+                }
+                rowCount = 0;
+            }
+        }
+    }
+
+    private static String trimQuantile(double percent) {
+        String text = String.format(Locale.ROOT, "%.2f", percent);
+        return text.replaceAll("\\.?0+$", "");
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1000) {
+            return micros + " us";
+        }
+        if (micros < 1_000_000) {
+            return String.format(Locale.ROOT, "%.2f ms", micros / 1e3);
+        }
+        return String.format(Locale.ROOT, "%.2f s", micros / 1e6);
+    }
+
+    // Configuration : load-config.properties s'il existe, puis les arguments clé=valeur
+    public static void main(String[] args) {
+        Properties config = new Properties();
+        try {
+            Path file = Paths.get(CONFIG_FILE);
+            if (Files.exists(file)) {
+                try (InputStream input = new FileInputStream(file.toFile())) {
+                    config.load(input);
+                }
+            }
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (equals <= 0) {
+                    System.err.println("Usage: LoadGenerator [load.key=value ...]  (defaults from " + CONFIG_FILE + ")");
+                    System.exit(2);
+                }
+                config.setProperty(arg.substring(0, equals).trim(), arg.substring(equals + 1).trim());
+            }
+
+            LoadGenerator generator = new LoadGenerator(config);
+            System.out.println("Load: " + generator.describe());
+            generator.run();
+            generator.report();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Load generator error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Mesures du serveur (latences, statuts, octets, PHP) exposées au format texte Prometheus
+class Metrics {
+    // Type de traitement choisi par RootHandler ; PROXY : relayée à un backend ;
+    // ERROR : requête refusée avant tout traitement
+    enum Route {
+        STATIC, PHP, LISTING, PROXY, ERROR;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    // Limites des intervalles exportés, en microsecondes
+    private static final long[] EXPORTED_BUCKETS = { 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000 };
+    private static final double[] EXPORTED_QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final class RouteMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Indice 0 : aucune réponse envoyée (connexion coupée)
+        final AtomicLongArray statusCounts = new AtomicLongArray(600);
+        final LongAdder bytesSent = new LongAdder();
+        final AtomicInteger inFlight = new AtomicInteger();
+    }
+
+    private static final class PhpExitCodes {
+        final AtomicLongArray codes = new AtomicLongArray(256);
+        final AtomicLong timeouts = new AtomicLong();
+    }
+
+    // Valeur lue au moment de l'export (exécuteur, caches, pool PHP)
+    private static final class Gauge {
+        final String name;
+        final String type;
+        final String help;
+        final LongSupplier value;
+
+        Gauge(String name, String type, String help, LongSupplier value) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.value = value;
+        }
+    }
+
+    // Requête mesurée sur ce thread ; le handler s'exécute entièrement sur le thread qui l'appelle
+    private static final class Request {
+        final Metrics metrics;
+        Route route;
+
+        Request(Metrics metrics) {
+            this.metrics = metrics;
+        }
+    }
+
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    private final String path;
+    private final RouteMetrics[] routes = new RouteMetrics[Route.values().length];
+    private final LatencyHistogram phpSpawn = new LatencyHistogram();
+    private final PhpExitCodes processExits = new PhpExitCodes();
+    private final PhpExitCodes fastCgiExits = new PhpExitCodes();
+    private final List<Gauge> gauges = new ArrayList<>();
+    private final List<Consumer<StringBuilder>> sections = new ArrayList<>();
+    private final long startedAt = System.nanoTime();
+
+    private Metrics(String path) {
+        this.path = path;
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = new RouteMetrics();
+        }
+    }
+
+    // Renvoie null si les mesures sont désactivées dans la configuration
+    static Metrics fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("metrics.enabled", "true").trim())) {
+            return null;
+        }
+        return new Metrics(config.getProperty("metrics.path", "/metrics").trim());
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    synchronized void register(String name, String type, String help, LongSupplier value) {
+        gauges.add(new Gauge(name, type, help, value));
+    }
+
+    // Séries à étiquettes écrites par un composant (par backend du proxy), à la suite des autres
+    synchronized void registerSection(Consumer<StringBuilder> section) {
+        sections.add(section);
+    }
+
+    // Mesure chaque requête du handler ; le chemin des mesures est servi directement
+    HttpHandler instrument(HttpHandler handler) {
+        return exchange -> {
+            if (exchange.getRequestURI().getPath().equals(path)) {
+                export(exchange);
+                return;
+            }
+            handle(exchange, handler);
+        };
+    }
+
+    private void handle(HttpExchange exchange, HttpHandler handler) throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream body = CountingOutputStream.wrap(exchange.getResponseBody());
+        exchange.setStreams(null, body);
+        Request request = new Request(this);
+        CURRENT.set(request);
+        try {
+            handler.handle(exchange);
+        } finally {
+            CURRENT.remove();
+            RouteMetrics metrics = routes[(request.route != null ? request.route : Route.ERROR).ordinal()];
+            if (request.route != null) {
+                metrics.inFlight.decrementAndGet();
+            }
+            metrics.latency.record(System.nanoTime() - start);
+            int status = exchange.getResponseCode();
+            metrics.statusCounts.incrementAndGet(status >= 100 && status < 600 ? status : 0);
+            metrics.bytesSent.add(body.getCount());
+        }
+    }
+
+    // Appelé par RootHandler une fois le traitement choisi
+    static void route(Route route) {
+        Request request = CURRENT.get();
+        if (request != null && request.route == null) {
+            request.route = route;
+            request.metrics.routes[route.ordinal()].inFlight.incrementAndGet();
+        }
+    }
+
+    void recordPhpSpawn(long nanos) {
+        phpSpawn.record(nanos);
+    }
+
+    void recordPhpExit(boolean fastCgi, int exitCode) {
+        (fastCgi ? fastCgiExits : processExits).codes.incrementAndGet(exitCode & 0xff);
+    }
+
+    void recordPhpTimeout(boolean fastCgi) {
+        (fastCgi ? fastCgiExits : processExits).timeouts.incrementAndGet();
+    }
+
+    private void export(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(200, head ? -1 : body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            if (!head) {
+                os.write(body);
+            }
+        }
+    }
+
+    private String render() {
+        StringBuilder out = new StringBuilder(8192);
+
+        header(out, "fluffy_http_requests_total", "counter", "Requests handled, by route and status code.");
+        for (Route route : Route.values()) {
+            AtomicLongArray statusCounts = routes[route.ordinal()].statusCounts;
+            for (int status = 0; status < statusCounts.length(); status++) {
+                long count = statusCounts.get(status);
+                if (count > 0) {
+                    out.append("fluffy_http_requests_total{route=\"").append(route.label).append("\",code=\"")
+                            .append(status == 0 ? "none" : String.valueOf(status)).append("\"} ")
+                            .append(count).append('\n');
+                }
+            }
+        }
+
+        header(out, "fluffy_http_request_duration_seconds", "histogram", "Request latency, by route.");
+        for (Route route : Route.values()) {
+            histogram(out, "fluffy_http_request_duration_seconds", "route=\"" + route.label + "\"",
+                    routes[route.ordinal()].latency);
+        }
+
+        header(out, "fluffy_http_request_duration_quantile_seconds", "gauge",
+                "Latency quantiles since start, by route (about 12% precision).");
+        for (Route route : Route.values()) {
+            quantiles(out, "fluffy_http_request_duration_quantile_seconds", "route=\"" + route.label + "\"",
+                    routes[route.ordinal()].latency);
+        }
+
+        header(out, "fluffy_http_response_bytes_total", "counter", "Response body bytes sent, by route.");
+        for (Route route : Route.values()) {
+            out.append("fluffy_http_response_bytes_total{route=\"").append(route.label).append("\"} ")
+                    .append(routes[route.ordinal()].bytesSent.sum()).append('\n');
+        }
+
+        header(out, "fluffy_http_requests_in_flight", "gauge", "Requests being handled, by route.");
+        for (Route route : Route.values()) {
+            out.append("fluffy_http_requests_in_flight{route=\"").append(route.label).append("\"} ")
+                    .append(routes[route.ordinal()].inFlight.get()).append('\n');
+        }
+
+        header(out, "fluffy_php_spawn_duration_seconds", "histogram", "Time to start a PHP process.");
+        histogram(out, "fluffy_php_spawn_duration_seconds", null, phpSpawn);
+
+        header(out, "fluffy_php_exits_total", "counter", "PHP executions, by mode and exit code.");
+        phpExits(out, "process", processExits);
+        phpExits(out, "fastcgi", fastCgiExits);
+
+        header(out, "fluffy_uptime_seconds", "gauge", "Time since the server started.");
+        out.append("fluffy_uptime_seconds ").append((System.nanoTime() - startedAt) / 1_000_000_000L).append('\n');
+
+        synchronized (this) {
+            for (Gauge gauge : gauges) {
+                header(out, gauge.name, gauge.type, gauge.help);
+                out.append(gauge.name).append(' ').append(gauge.value.getAsLong()).append('\n');
+            }
+            for (Consumer<StringBuilder> section : sections) {
+                section.accept(out);
+            }
+        }
+        return out.toString();
+    }
+
+    static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long[] snapshot = histogram.snapshot();
+        String prefix = labels != null ? labels + "," : "";
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        for (long limit : EXPORTED_BUCKETS) {
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(seconds(limit)).append("\"} ")
+                    .append(LatencyHistogram.countAtOrBelow(snapshot, limit)).append('\n');
+        }
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(total).append('\n');
+        String suffix = labels != null ? "{" + labels + "}" : "";
+        out.append(name).append("_sum").append(suffix).append(' ')
+                .append(seconds(histogram.getTotalMicros())).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(total).append('\n');
+    }
+
+    static void quantiles(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long[] snapshot = histogram.snapshot();
+        for (double quantile : EXPORTED_QUANTILES) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(LatencyHistogram.valueAtQuantile(snapshot, quantile))).append('\n');
+        }
+    }
+
+    private static void phpExits(StringBuilder out, String mode, PhpExitCodes exits) {
+        for (int code = 0; code < exits.codes.length(); code++) {
+            long count = exits.codes.get(code);
+            if (count > 0) {
+                out.append("fluffy_php_exits_total{mode=\"").append(mode).append("\",code=\"").append(code)
+                        .append("\"} ").append(count).append('\n');
+            }
+        }
+        if (exits.timeouts.get() > 0) {
+            out.append("fluffy_php_exits_total{mode=\"").append(mode).append("\",code=\"timeout\"} ")
+                    .append(exits.timeouts.get()).append('\n');
+        }
+    }
+
+    private static String seconds(long micros) {
+        return String.valueOf(micros / 1_000_000.0);
+    }
+}
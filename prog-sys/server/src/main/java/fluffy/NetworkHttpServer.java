@@ -0,0 +1,1262 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+public class NetworkHttpServer {
+    // Fichier passé en argument (plusieurs instances depuis un même dossier), sinon server-config.properties
+    private static Path configFile = Paths.get(ServerConfig.FILE_NAME);
+    // Configuration courante ; remplacée d'une seule écriture à chaque rechargement
+    private static volatile ServerConfig current;
+    private static CountDownLatch clientConnectedLatch = new CountDownLatch(1);
+    private static HttpServer server;
+    private static HttpHandler rootHandler;
+    private static WorkerExecutor workerExecutor;
+    private static DocumentRootWatcher documentRootWatcher;
+    private static Metrics metrics;
+    private static AccessLog accessLog;
+
+    // Paramètres et caches de RootHandler, sans serveur ni workers PHP (utilisé par les benchmarks)
+    static void configure(Properties properties) throws IOException {
+        current = ServerConfig.createWithoutWorkers(properties);
+    }
+
+    // Configuration complète, pool PHP compris (utilisé par les tests) ; renvoie la précédente
+    static ServerConfig configure(ServerConfig config) {
+        ServerConfig previous = current;
+        current = config;
+        return previous;
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            configFile = Paths.get(args[0]);
+        }
+        try {
+            ServerConfig config = ServerConfig.create(ServerConfig.read(configFile), null);
+            current = config;
+            // Mesures de chaque requête, exposées sur metrics.path ; null si désactivé
+            metrics = Metrics.fromConfig(config.properties);
+            HttpHandler handler = metrics != null ? metrics.instrument(new RootHandler()) : new RootHandler();
+            // Journal des accès écrit en arrière-plan ; null si désactivé
+            accessLog = AccessLog.fromConfig(config.properties);
+            rootHandler = accessLog != null ? accessLog.wrap(handler) : handler;
+
+            // Les requêtes ne bloquent plus le thread du dispatcher
+            workerExecutor = WorkerExecutor.fromConfig(config.properties);
+            server = createServer(config);
+
+            // Caches invalidés par la surveillance de la racine ; toujours ceux de la configuration courante
+            documentRootWatcher = watchDocumentRoot(config.documentRoot);
+            if (metrics != null) {
+                registerGauges();
+                if (config.phpWorkerPool != null) {
+                    config.phpWorkerPool.setSpawnListener(metrics::recordPhpSpawn);
+                }
+            }
+            server.start();
+            // Du démarrage de la JVM à l'écoute prête : suivi du temps de démarrage
+            long listeningAt = System.currentTimeMillis();
+
+            // Modifications de server-config.properties appliquées sans redémarrage
+            if (Boolean.parseBoolean(config.properties.getProperty("server.config.watch", "true").trim())) {
+                ConfigWatcher.start(configFile, NetworkHttpServer::reload);
+            }
+
+            System.out.println("Server running on port: " + config.port);
+            System.out.println("Engine: " + describeEngine(server));
+            System.out.println("Executor: " + workerExecutor.describe());
+            describeComponents(config);
+            if (accessLog != null) {
+                System.out.println("Log: " + accessLog.describe());
+            }
+            printNetworkInterfaces(config.port);
+
+            // Navigateur intégré ouvert à la première requête ; en mode sans interface, BrowserLauncher
+            // n'est jamais chargé et aucune classe AWT ni Swing ne l'est non plus
+            if (browserEnabled(config.properties)) {
+                BrowserLauncher.launchAfter(clientConnectedLatch);
+            } else {
+                System.out.println("Browser: disabled (headless)");
+            }
+            System.out.println("Started in " + (listeningAt - ManagementFactory.getRuntimeMXBean().getStartTime())
+                    + " ms");
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // browser.enabled=false, ou -Djava.awt.headless=true : serveur seul
+    private static boolean browserEnabled(Properties properties) {
+        return Boolean.parseBoolean(properties.getProperty("browser.enabled", "true").trim())
+                && !Boolean.getBoolean("java.awt.headless");
+    }
+
+    // Moteur HTTP : celui du JDK, ou le moteur NIO (boucles d'événements, keep-alive, pipelining)
+    private static HttpServer createServer(ServerConfig config) throws IOException {
+        String engine = config.properties.getProperty("server.engine", "jdk").trim();
+        HttpServer created = "nio".equalsIgnoreCase(engine)
+                ? NioHttpServer.create(new InetSocketAddress(config.port), config.properties)
+                : HttpServer.create(new InetSocketAddress(config.port), 0);
+        created.createContext("/", rootHandler);
+        created.setExecutor(workerExecutor);
+        return created;
+    }
+
+    private static String describeEngine(HttpServer httpServer) {
+        return httpServer instanceof NioHttpServer
+                ? ((NioHttpServer) httpServer).describe()
+                : "jdk (com.sun.net.httpserver)";
+    }
+
+    private static void describeComponents(ServerConfig config) {
+        if (config.phpWorkerPool != null) {
+            System.out.println("PHP: " + config.phpWorkerPool.describe());
+        }
+        if (config.phpResponseCache != null) {
+            System.out.println("PHP cache: " + config.phpResponseCache.describe());
+        }
+        if (config.staticFileCache != null) {
+            System.out.println("Cache: " + config.staticFileCache.describe());
+        }
+        if (config.compression != null) {
+            System.out.println("Compression: " + config.compression.describe());
+        }
+        if (config.listingCache != null) {
+            System.out.println("Listings: " + config.listingCache.describe());
+        }
+        if (config.admission != null) {
+            System.out.println("Admission: " + config.admission.describe());
+        }
+        if (config.proxy != null) {
+            System.out.println("Proxy: " + config.proxy.describe());
+        }
+    }
+
+    private static DocumentRootWatcher watchDocumentRoot(Path root) throws IOException {
+        return DocumentRootWatcher.start(root, changed -> {
+            ServerConfig config = current;
+            if (config.staticFileCache != null) {
+                config.staticFileCache.invalidate(changed);
+            }
+            if (config.compression != null) {
+                config.compression.invalidate(changed);
+            }
+            if (config.listingCache != null) {
+                config.listingCache.invalidate(changed);
+            }
+        });
+    }
+
+    // Relit server-config.properties ; en cas d'erreur, la configuration courante reste en place
+    static synchronized void reload() {
+        ServerConfig previous = current;
+        ServerConfig next;
+        try {
+            next = ServerConfig.create(ServerConfig.read(configFile), previous);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Configuration reload failed, keeping the current configuration: " + e);
+            return;
+        }
+        List<String> changedKeys = next.changedKeys(previous);
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+
+        current = next;
+
+        // Composants remplacés : libérés une fois la nouvelle configuration en place
+        if (previous.phpWorkerPool != null && previous.phpWorkerPool != next.phpWorkerPool) {
+            previous.phpWorkerPool.shutdown();
+        }
+        if (previous.proxy != null && previous.proxy != next.proxy) {
+            previous.proxy.shutdown();
+        }
+        if (metrics != null && next.phpWorkerPool != null && next.phpWorkerPool != previous.phpWorkerPool) {
+            next.phpWorkerPool.setSpawnListener(metrics::recordPhpSpawn);
+        }
+        if (!next.documentRoot.equals(previous.documentRoot)) {
+            try {
+                DocumentRootWatcher watcher = watchDocumentRoot(next.documentRoot);
+                documentRootWatcher.close();
+                documentRootWatcher = watcher;
+            } catch (IOException e) {
+                System.err.println("Cannot watch " + next.documentRoot + ", caches may serve stale files: "
+                        + e.getMessage());
+            }
+        }
+        workerExecutor.resize(next.executorThreads);
+        if (next.port != previous.port) {
+            rebind(next, previous.port);
+        }
+
+        System.out.println("Configuration reloaded: " + String.join(", ", changedKeys));
+        List<String> startupKeys = next.startupKeysChanged(previous);
+        if (!startupKeys.isEmpty()) {
+            System.out.println("Restart required for: " + String.join(", ", startupKeys));
+        }
+    }
+
+    // Nouvelle écoute ouverte d'abord ; l'ancienne refuse les nouvelles connexions et termine ses échanges
+    private static void rebind(ServerConfig config, int previousPort) {
+        HttpServer replacement;
+        try {
+            replacement = createServer(config);
+        } catch (IOException e) {
+            System.err.println("Cannot listen on port " + config.port + ", still on port " + previousPort + ": "
+                    + e.getMessage());
+            return;
+        }
+        replacement.start();
+        HttpServer previous = server;
+        server = replacement;
+        System.out.println("Listening on port " + config.port + " (" + describeEngine(replacement)
+                + "), draining port " + previousPort + " for up to " + config.drainTimeout + " s");
+        Thread drain = new Thread(() -> previous.stop(config.drainTimeout), "listener-drain-" + previousPort);
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    // Statistiques déjà tenues par l'exécuteur, les caches et le pool PHP, lues à chaque export
+    // (dans la configuration courante : un rechargement peut remplacer un cache ou le pool)
+    private static void registerGauges() {
+        metrics.register("fluffy_executor_active_workers", "gauge", "Requests running on the executor.",
+                workerExecutor::getActiveWorkers);
+        metrics.register("fluffy_executor_queue_depth", "gauge", "Requests waiting for a worker.",
+                workerExecutor::getQueueDepth);
+        metrics.register("fluffy_executor_completed_total", "counter", "Tasks completed by the executor.",
+                workerExecutor::getCompletedCount);
+        metrics.register("fluffy_executor_rejected_total", "counter", "Tasks rejected because the queue was full.",
+                workerExecutor::getRejectedCount);
+        metrics.register("fluffy_php_workers", "gauge", "php-cgi workers running.",
+                gauge(config -> config.phpWorkerPool, PhpWorkerPool::getSize));
+        metrics.register("fluffy_php_workers_idle", "gauge", "php-cgi workers waiting for a request.",
+                gauge(config -> config.phpWorkerPool, PhpWorkerPool::getIdleCount));
+        metrics.register("fluffy_php_workers_recycled_total", "counter", "php-cgi workers retired.",
+                gauge(config -> config.phpWorkerPool, PhpWorkerPool::getRecycledCount));
+        metrics.register("fluffy_php_cache_hits_total", "counter", "PHP responses served from the cache.",
+                gauge(config -> config.phpResponseCache, PhpResponseCache::getHits));
+        metrics.register("fluffy_php_cache_misses_total", "counter", "PHP executions for cacheable requests.",
+                gauge(config -> config.phpResponseCache, PhpResponseCache::getMisses));
+        metrics.register("fluffy_php_cache_coalesced_total", "counter",
+                "Requests that waited for an execution already in progress.",
+                gauge(config -> config.phpResponseCache, PhpResponseCache::getCoalesced));
+        metrics.register("fluffy_php_cache_bytes", "gauge", "Size of the PHP response cache.",
+                gauge(config -> config.phpResponseCache, PhpResponseCache::getSizeBytes));
+        metrics.register("fluffy_static_cache_hits_total", "counter", "Static files served from memory.",
+                gauge(config -> config.staticFileCache, StaticFileCache::getHits));
+        metrics.register("fluffy_static_cache_misses_total", "counter", "Static file cache misses.",
+                gauge(config -> config.staticFileCache, StaticFileCache::getMisses));
+        metrics.register("fluffy_static_cache_evictions_total", "counter", "Static files evicted from memory.",
+                gauge(config -> config.staticFileCache, StaticFileCache::getEvictions));
+        metrics.register("fluffy_static_cache_bytes", "gauge", "Size of the static file cache.",
+                gauge(config -> config.staticFileCache, StaticFileCache::getSizeBytes));
+        metrics.register("fluffy_compression_cache_hits_total", "counter", "Compressed variants reused.",
+                gauge(config -> config.compression, Compression::getHits));
+        metrics.register("fluffy_compression_cache_misses_total", "counter", "Compressed variants computed.",
+                gauge(config -> config.compression, Compression::getMisses));
+        metrics.register("fluffy_compression_cache_bytes", "gauge", "Size of the compressed variant cache.",
+                gauge(config -> config.compression, Compression::getSizeBytes));
+        metrics.register("fluffy_listing_cache_hits_total", "counter", "Directory listings served from memory.",
+                gauge(config -> config.listingCache, DirectoryListingCache::getHits));
+        metrics.register("fluffy_listing_cache_misses_total", "counter", "Directories read from disk.",
+                gauge(config -> config.listingCache, DirectoryListingCache::getMisses));
+        metrics.register("fluffy_admission_overloaded_total", "counter",
+                "Requests refused with 503 because their route was at its concurrency limit.",
+                gauge(config -> config.admission, AdmissionControl::getOverloaded));
+        metrics.register("fluffy_admission_rate_limited_total", "counter",
+                "Requests refused with 429 because the client exceeded its rate.",
+                gauge(config -> config.admission, AdmissionControl::getRateLimited));
+        metrics.register("fluffy_admission_clients", "gauge", "Client addresses with rate limiting state.",
+                gauge(config -> config.admission, AdmissionControl::getTrackedClients));
+        metrics.register("fluffy_admission_php_limit", "gauge", "Current PHP concurrency limit (0 = none).",
+                gauge(config -> config.admission, AdmissionControl::getPhpLimit));
+        metrics.register("fluffy_proxy_unavailable_total", "counter",
+                "Requests refused because no backend was in service.",
+                gauge(config -> config.proxy, ReverseProxy::getUnavailable));
+        // Séries par backend de la configuration courante
+        metrics.registerSection(out -> {
+            ReverseProxy proxy = current.proxy;
+            if (proxy != null) {
+                proxy.exportMetrics(out);
+            }
+        });
+        if (accessLog != null) {
+            metrics.register("fluffy_access_log_written_total", "counter", "Access log lines written.",
+                    accessLog::getWritten);
+            metrics.register("fluffy_access_log_dropped_total", "counter",
+                    "Access log lines dropped because the buffer was full.", accessLog::getDropped);
+        }
+    }
+
+    // Valeur lue sur le composant de la configuration courante ; 0 s'il est désactivé
+    private static <T> LongSupplier gauge(Function<ServerConfig, T> component, ToLongFunction<T> value) {
+        return () -> {
+            T instance = component.apply(current);
+            return instance != null ? value.applyAsLong(instance) : 0;
+        };
+    }
+
+    // Erreurs rencontrées pendant une requête : écrites par le thread du journal, jamais par la requête
+    static void logError(String message) {
+        if (accessLog != null) {
+            accessLog.error(message);
+        } else {
+            System.err.println(message);
+        }
+    }
+
+    static class RootHandler implements HttpHandler {
+        private static final long PHP_FLUSH_DELAY_MS = 10;
+        private static final ScheduledExecutorService PHP_WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "php-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        // Corps de requête recopié vers l'entrée des processus PHP pendant que leur sortie est lue
+        private static final ExecutorService PHP_STDIN = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "php-stdin");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // En-tête et fin fixes des listes de fichiers, encodés une seule fois
+        private static final byte[] LISTING_HEAD = ("<!DOCTYPE html><html><head>"
+                + "<title>Fichiers sur serveur</title>"
+                + "<meta charset='UTF-8'>"
+                + "<style>"
+                + "body { font-family: Arial, sans-serif; max-width: 800px; margin: 0 auto; padding: 20px; }"
+                + "h1 { color: #333; }"
+                + "ul { list-style-type: none; padding: 0; }"
+                + "li { margin-bottom: 10px; display: flex; align-items: center; }"
+                + "a { text-decoration: none; color: #0066cc; margin-left: 10px; }"
+                + "a:hover { text-decoration: underline; }"
+                + ".icon { margin-right: 10px; }"
+                + ".meta { margin-left: auto; color: #888; font-size: 0.85em; }"
+                + ".nav { color: #555; }"
+                + "</style>"
+                + "</head><body>"
+                + "<h1>Fichiers sur serveur</h1>"
+                + "<ul>").getBytes(StandardCharsets.UTF_8);
+        private static final byte[] LISTING_TAIL = "</body></html>".getBytes(StandardCharsets.UTF_8);
+        private static final DateTimeFormatter LISTING_DATE_FORMAT = DateTimeFormatter
+                .ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+        private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            clientConnectedLatch.countDown();
+
+            // File d'attente pleine : réponse rapide sans traiter la requête
+            if (WorkerExecutor.isRejectedRequest()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendErrorResponse(exchange, 503, "Service Unavailable");
+                return;
+            }
+
+            // Une seule lecture : la requête garde cette configuration même si elle est rechargée entre-temps
+            ServerConfig config = current;
+
+            // Mode frontal : requête relayée à un backend, la racine des documents n'est pas utilisée
+            if (config.proxy != null) {
+                proxy(exchange, config);
+                return;
+            }
+
+            // Chemin normalisé sous la racine ; refusé s'il en sortirait
+            String relativePath = RequestDispatch.normalize(exchange.getRequestURI().getPath());
+            if (relativePath == null) {
+                sendErrorResponse(exchange, 403, "Forbidden");
+                return;
+            }
+            Path filePath = config.documentRoot.resolve(relativePath);
+            RequestDispatch.FileType type = config.dispatch.lookup(relativePath);
+            boolean staticFile = type != null && type.allowed && type.handler == RequestDispatch.Handler.STATIC;
+
+            // Type de traitement admis ; libéré quelle que soit l'issue de la requête
+            Metrics.Route admitted = null;
+            long admittedAt = 0;
+            try {
+                // Fichier déjà en mémoire : servi sans aucun accès au disque
+                if (staticFile && config.staticFileCache != null) {
+                    StaticFileCache.Entry cached = config.staticFileCache.get(filePath);
+                    if (cached != null) {
+                        Metrics.route(Metrics.Route.STATIC);
+                        if (!admit(exchange, config, Metrics.Route.STATIC)) {
+                            return;
+                        }
+                        admitted = Metrics.Route.STATIC;
+                        admittedAt = System.nanoTime();
+                        serveCachedFile(exchange, config, filePath, cached, type);
+                        return;
+                    }
+                }
+
+                // Un seul appel au système de fichiers : dossier, fichier ou absent
+                long generation = config.staticFileCache != null ? config.staticFileCache.generation() : 0;
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    attributes = null;
+                }
+
+                // Lister les fichiers si c'est un répertoire
+                if (attributes != null && attributes.isDirectory()) {
+                    Metrics.route(Metrics.Route.LISTING);
+                    if (!admit(exchange, config, Metrics.Route.LISTING)) {
+                        return;
+                    }
+                    admitted = Metrics.Route.LISTING;
+                    admittedAt = System.nanoTime();
+                    serveDirectoryListing(exchange, config, filePath, attributes);
+                    return;
+                }
+
+                // Vérifier l'extension du fichier
+                if (type == null || !type.allowed) {
+                    sendErrorResponse(exchange, 403, "Forbidden");
+                    return;
+                }
+
+                // Gestion spéciale pour PHP
+                Metrics.Route route = type.handler == RequestDispatch.Handler.PHP
+                        ? Metrics.Route.PHP : Metrics.Route.STATIC;
+                Metrics.route(route);
+                if (attributes == null) {
+                    sendErrorResponse(exchange, 404,
+                            route == Metrics.Route.PHP ? "PHP File Not Found" : "File Not Found");
+                    return;
+                }
+                if (!admit(exchange, config, route)) {
+                    return;
+                }
+                admitted = route;
+                admittedAt = System.nanoTime();
+                if (route == Metrics.Route.PHP) {
+                    servePHPFile(exchange, config, filePath);
+                } else {
+                    serveStaticFile(exchange, config, filePath, type, attributes, generation);
+                }
+            } finally {
+                if (admitted != null && config.admission != null) {
+                    config.admission.release(admitted, System.nanoTime() - admittedAt);
+                }
+            }
+        }
+
+        private void proxy(HttpExchange exchange, ServerConfig config) throws IOException {
+            Metrics.route(Metrics.Route.PROXY);
+            if (!admit(exchange, config, Metrics.Route.PROXY)) {
+                return;
+            }
+            long admittedAt = System.nanoTime();
+            try {
+                config.proxy.handle(exchange);
+            } catch (ReverseProxy.UnavailableException e) {
+                if (e.status == 503) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                }
+                sendErrorResponse(exchange, e.status, e.status == 503 ? "Service Unavailable" : "Bad Gateway");
+            } finally {
+                if (config.admission != null) {
+                    config.admission.release(Metrics.Route.PROXY, System.nanoTime() - admittedAt);
+                }
+            }
+        }
+
+        // Contrôle d'admission : répond 503 ou 429 avec Retry-After et renvoie false si la requête est refusée
+        private boolean admit(HttpExchange exchange, ServerConfig config, Metrics.Route route) throws IOException {
+            if (config.admission == null) {
+                return true;
+            }
+            AdmissionControl.Rejection rejection = config.admission.admit(exchange.getRemoteAddress(), route);
+            if (rejection == null) {
+                return true;
+            }
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(rejection.retryAfterSeconds));
+            sendErrorResponse(exchange, rejection.status,
+                    rejection.status == 429 ? "Too Many Requests" : "Service Unavailable");
+            return false;
+        }
+
+        private void serveDirectoryListing(HttpExchange exchange, ServerConfig config, Path dirPath,
+                BasicFileAttributes attributes) throws IOException {
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            DirectoryListingCache.Listing listing = config.listingCache != null
+                    ? config.listingCache.get(dirPath, lastModified) : null;
+            if (listing == null) {
+                listing = readDirectory(config, dirPath, lastModified);
+                if (config.listingCache != null) {
+                    config.listingCache.put(dirPath, listing);
+                }
+            }
+
+            // Pagination et tri : ?offset=&limit=&sort=name|size|modified&order=asc|desc
+            String query = exchange.getRequestURI().getRawQuery();
+            String sort = queryParameter(query, "sort");
+            if (!"size".equals(sort) && !"modified".equals(sort)) {
+                sort = null;
+            }
+            boolean descending = "desc".equals(queryParameter(query, "order"));
+            DirectoryListingCache.Item[] items = listing.sorted(sort);
+            int offset = Math.min(Math.max(parseIntParameter(queryParameter(query, "offset"), 0), 0), items.length);
+            int limit = parseIntParameter(queryParameter(query, "limit"), config.listingPageSize);
+            int end = limit > 0 ? (int) Math.min((long) offset + limit, items.length) : items.length;
+
+            // La page dépend du contenu du dossier (noms, tailles et dates des entrées), de la requête et de l'hôte
+            // utilisé dans les liens
+            String host = String.valueOf(exchange.getRequestHeaders().getFirst("Host"));
+            String etag = "\"d" + Long.toHexString(listing.version) + "-"
+                    + Integer.toHexString((host + '?' + query).hashCode()) + "\"";
+            boolean gzip = false;
+            if (config.compression != null) {
+                exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+                gzip = Compression.acceptedEncodings(exchange).contains(Compression.GZIP);
+                if (gzip) {
+                    etag = Compression.variantEtag(etag, Compression.GZIP);
+                }
+            }
+            if (ConditionalRequest.handle(exchange, etag, listing.newestModified)) {
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", Compression.GZIP);
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+
+            // Page envoyée au fur et à mesure (transfert chunked), sans la construire en mémoire
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = gzip ? new GZIPOutputStream(exchange.getResponseBody(), 8192) : exchange.getResponseBody();
+            try (Writer html = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 16384)) {
+                body.write(LISTING_HEAD);
+
+                // Récupérer l'URL de base
+                String baseUrl = "http://" + host;
+                Path relativeDirPath = config.documentRoot.relativize(dirPath);
+                StringBuilder dirUrl = new StringBuilder(baseUrl).append('/');
+                for (Path segment : relativeDirPath) {
+                    if (!segment.toString().isEmpty()) {
+                        dirUrl.append(encodePathSegment(segment.toString())).append('/');
+                    }
+                }
+
+                // Ajouter un lien parent pour remonter
+                if (!relativeDirPath.toString().isEmpty() && !relativeDirPath.toString().equals(".")) {
+                    String parentUrl = dirUrl.substring(0, dirUrl.lastIndexOf("/", dirUrl.length() - 2) + 1);
+                    html.write("<li><span class='icon'>[D]</span><a href='");
+                    html.write(parentUrl);
+                    html.write("'>..[Parent Directory]</a></li>");
+                }
+
+                String dirLink = dirUrl.toString();
+                for (int i = offset; i < end; i++) {
+                    DirectoryListingCache.Item item = items[descending ? items.length - 1 - i : i];
+                    html.write(item.opening);
+                    html.write(dirLink);
+                    html.write(item.closing);
+                }
+                html.write("</ul>");
+                writePageLinks(html, sort, descending, offset, limit, end, items.length);
+                html.flush();
+                body.write(LISTING_TAIL);
+            }
+        }
+
+        // Lecture du dossier : un seul appel système d'attributs par entrée, fragments HTML calculés une fois
+        private DirectoryListingCache.Listing readDirectory(ServerConfig config, Path dirPath, long lastModified)
+                throws IOException {
+            List<DirectoryListingCache.Item> items = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+                for (Path entry : stream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (NoSuchFileException e) {
+                        continue; // Supprimé pendant la lecture
+                    }
+                    String name = entry.getFileName().toString();
+                    boolean directory = attributes.isDirectory();
+                    long modified = attributes.lastModifiedTime().toMillis();
+
+                    // Différencier les dossiers et les fichiers ; icônes basées sur l'extension de fichier
+                    String opening = "<li><span class='icon'>" + (directory ? "[D]" : config.dispatch.iconFor(name))
+                            + "</span><a href='";
+                    String closing = encodePathSegment(name) + (directory ? "/'>" : "'>")
+                            + escapeHtml(name) + (directory ? "/" : "") + "</a><span class='meta'>"
+                            + (directory ? "" : formatSize(attributes.size()) + " · ")
+                            + LISTING_DATE_FORMAT.format(Instant.ofEpochMilli(modified)) + "</span></li>";
+                    items.add(new DirectoryListingCache.Item(name, directory, attributes.size(), modified,
+                            opening, closing));
+                }
+            }
+            return new DirectoryListingCache.Listing(lastModified, items);
+        }
+
+        // Position dans la liste, liens vers les pages voisines et choix du tri
+        private void writePageLinks(Writer html, String sort, boolean descending, int offset, int limit, int end,
+                int total) throws IOException {
+            String sortParameters = (sort != null ? "&sort=" + sort : "")
+                    + (descending ? "&order=desc" : "");
+            html.write("<p class='nav'>");
+            html.write(total == 0 ? "0" : (offset + 1) + "–" + end);
+            html.write(" sur " + total);
+            if (limit > 0 && offset > 0) {
+                html.write(" · <a href='?offset=" + Math.max(0, offset - limit) + "&limit=" + limit
+                        + sortParameters + "'>« Précédent</a>");
+            }
+            if (limit > 0 && end < total) {
+                html.write(" · <a href='?offset=" + end + "&limit=" + limit + sortParameters + "'>Suivant »</a>");
+            }
+            html.write("</p><p class='nav'>Trier par : ");
+            String[][] sorts = { { "name", "nom" }, { "size", "taille" }, { "modified", "date" } };
+            for (int i = 0; i < sorts.length; i++) {
+                // Un second clic sur le tri courant inverse l'ordre
+                boolean current = sorts[i][0].equals(sort == null ? "name" : sort);
+                html.write((i > 0 ? " · " : "") + "<a href='?sort=" + sorts[i][0]
+                        + (current && !descending ? "&order=desc" : "") + (limit > 0 ? "&limit=" + limit : "")
+                        + "'>" + sorts[i][1] + "</a>");
+            }
+            html.write("</p>");
+        }
+
+        private static String queryParameter(String query, String name) {
+            if (query == null) {
+                return null;
+            }
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                String key = equals >= 0 ? pair.substring(0, equals) : pair;
+                if (key.equals(name)) {
+                    if (equals < 0) {
+                        return "";
+                    }
+                    try {
+                        return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+                    } catch (IllegalArgumentException e) {
+                        return null; // Échappement invalide (%zz) : paramètre ignoré
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static int parseIntParameter(String value, int defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        // Encodage d'un nom de fichier dans un chemin d'URL (espaces, #, ?, %, caractères non ASCII)
+        private static String encodePathSegment(String segment) {
+            StringBuilder encoded = null;
+            byte[] bytes = segment.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < bytes.length; i++) {
+                int b = bytes[i] & 0xff;
+                boolean safe = b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9'
+                        || b == '-' || b == '.' || b == '_' || b == '~';
+                if (safe && encoded == null) {
+                    continue;
+                }
+                if (encoded == null) {
+                    encoded = new StringBuilder(bytes.length + 16).append(segment, 0, i);
+                }
+                if (safe) {
+                    encoded.append((char) b);
+                } else {
+                    encoded.append('%').append(HEX_DIGITS[b >> 4]).append(HEX_DIGITS[b & 0xf]);
+                }
+            }
+            return encoded != null ? encoded.toString() : segment;
+        }
+
+        private static String escapeHtml(String text) {
+            StringBuilder escaped = new StringBuilder(text.length() + 16);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '&':
+                        escaped.append("&amp;");
+                        break;
+                    case '<':
+                        escaped.append("&lt;");
+                        break;
+                    case '>':
+                        escaped.append("&gt;");
+                        break;
+                    case '\'':
+                        escaped.append("&#39;");
+                        break;
+                    case '"':
+                        escaped.append("&quot;");
+                        break;
+                    default:
+                        escaped.append(c);
+                }
+            }
+            return escaped.toString();
+        }
+
+        private static String formatSize(long size) {
+            if (size < 1024) {
+                return size + " o";
+            }
+            String[] units = { "Ko", "Mo", "Go", "To" };
+            double value = size;
+            int unit = -1;
+            while (value >= 1024 && unit < units.length - 1) {
+                value /= 1024;
+                unit++;
+            }
+            return String.format(Locale.FRANCE, "%.1f %s", value, units[unit]);
+        }
+
+        private void serveStaticFile(HttpExchange exchange, ServerConfig config, Path filePath,
+                RequestDispatch.FileType type, BasicFileAttributes attributes, long generation) throws IOException {
+            long fileSize = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            String mimeType = type.contentType;
+
+            // Les petits fichiers sont lus une fois puis servis depuis la mémoire
+            if (config.staticFileCache != null && config.staticFileCache.accepts(fileSize)) {
+                byte[] content = readFile(filePath, fileSize);
+                StaticFileCache.Entry entry = new StaticFileCache.Entry(content, mimeType, lastModified);
+                config.staticFileCache.put(filePath, entry, generation);
+                serveCachedFile(exchange, config, filePath, entry, type);
+                return;
+            }
+
+            String etag = ConditionalRequest.etag(fileSize, lastModified);
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            boolean ranged = isRangeRequest(exchange);
+            List<String> encodings = Collections.emptyList();
+            if (config.compression != null && config.compression.shouldCompress(type.compressible, fileSize)) {
+                exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+                // Les plages portent sur la représentation non compressée
+                if (!ranged) {
+                    encodings = Compression.acceptedEncodings(exchange);
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", mimeType);
+
+            // Version précompressée (.br, .gz) envoyée telle quelle
+            Compression.Sibling sibling = encodings.isEmpty()
+                    ? null
+                    : config.compression.findSibling(filePath, lastModified, encodings);
+            if (sibling != null) {
+                exchange.getResponseHeaders().set("Content-Encoding", sibling.encoding);
+                if (!ConditionalRequest.handle(exchange, Compression.variantEtag(etag, sibling.encoding),
+                        lastModified)) {
+                    streamFile(exchange, sibling.path, sibling.size);
+                }
+                return;
+            }
+
+            // Variante gardée en cache, même sans cache des fichiers statiques : compressée une seule fois.
+            // Sans gain à la compression, la version d'origine est servie telle quelle avec son propre ETag.
+            if (encodings.contains(Compression.GZIP) && config.compression.fitsCache(fileSize)) {
+                Compression.Variant variant = config.compression.select(filePath, lastModified,
+                        () -> readFile(filePath, fileSize), List.of(Compression.GZIP));
+                if (variant != null) {
+                    exchange.getResponseHeaders().set("Content-Encoding", variant.encoding);
+                    if (!ConditionalRequest.handle(exchange, Compression.variantEtag(etag, variant.encoding),
+                            lastModified)) {
+                        sendBytes(exchange, mimeType, variant.content);
+                    }
+                    return;
+                }
+            } else if (encodings.contains(Compression.GZIP)) {
+                // Trop gros pour le cache : compressé à la volée ; le client a déjà cette version, 304 sans
+                // ouvrir le fichier
+                exchange.getResponseHeaders().set("Content-Encoding", Compression.GZIP);
+                if (!ConditionalRequest.handle(exchange, Compression.variantEtag(etag, Compression.GZIP),
+                        lastModified)) {
+                    streamGzippedFile(exchange, filePath);
+                }
+                return;
+            }
+            if (ConditionalRequest.handle(exchange, etag, lastModified)) {
+                return;
+            }
+            if (ranged) {
+                try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                    if (serveRanges(exchange, etag, lastModified, mimeType, fileSize,
+                            (os, position, count) -> FileTransfer.transfer(fileChannel, position, count, os))) {
+                        return;
+                    }
+                }
+            }
+            streamFile(exchange, filePath, fileSize);
+        }
+
+        private boolean isRangeRequest(HttpExchange exchange) {
+            return "GET".equals(exchange.getRequestMethod()) && exchange.getRequestHeaders().containsKey("Range");
+        }
+
+        // Renvoie vrai si une réponse partielle (206) ou 416 a été envoyée
+        private boolean serveRanges(HttpExchange exchange, String etag, long lastModified, String contentType,
+                long size, ByteRanges.Source source) throws IOException {
+            // If-Range ne correspond plus : la nouvelle version est envoyée en entier
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            if (ifRange != null && !ByteRanges.ifRangeMatches(ifRange, etag, lastModified)) {
+                return false;
+            }
+            List<ByteRanges.Range> ranges = ByteRanges.parse(exchange.getRequestHeaders().getFirst("Range"), size);
+            if (ranges == null) {
+                return false;
+            }
+            if (ranges.isEmpty()) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+                sendErrorResponse(exchange, 416, "Range Not Satisfiable");
+                return true;
+            }
+            ByteRanges.send(exchange, ranges, size, contentType, source);
+            return true;
+        }
+
+        // Le fichier est envoyé par morceaux depuis le canal, jamais chargé en entier
+        private void streamFile(HttpExchange exchange, Path filePath, long fileSize) throws IOException {
+            try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                boolean head = "HEAD".equals(exchange.getRequestMethod());
+                exchange.sendResponseHeaders(200, fileSize == 0 || head ? -1 : fileSize);
+
+                try (OutputStream os = exchange.getResponseBody()) {
+                    if (!head) {
+                        FileTransfer.transfer(fileChannel, 0, fileSize, os);
+                    }
+                }
+            }
+        }
+
+        // Lecture positionnelle du fichier entier ; plus court que prévu s'il a été tronqué entre-temps
+        private byte[] readFile(Path filePath, long fileSize) throws IOException {
+            try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+                while (buffer.hasRemaining()) {
+                    if (fileChannel.read(buffer, buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+            }
+        }
+
+        // Compression à la volée d'un gros fichier, en transfert chunked
+        private void streamGzippedFile(HttpExchange exchange, Path filePath) throws IOException {
+            try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody(), 8192)) {
+                    FileTransfer.transfer(fileChannel, 0, fileChannel.size(), os);
+                }
+            }
+        }
+
+        private void serveCachedFile(HttpExchange exchange, ServerConfig config, Path filePath,
+                StaticFileCache.Entry entry, RequestDispatch.FileType type) throws IOException {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            boolean ranged = isRangeRequest(exchange);
+            Compression.Variant variant = null;
+            if (config.compression != null
+                    && config.compression.shouldCompress(type.compressible, entry.content.length)) {
+                exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+                List<String> encodings = ranged ? Collections.emptyList() : Compression.acceptedEncodings(exchange);
+                if (!encodings.isEmpty()) {
+                    variant = config.compression.select(filePath, entry.lastModified, entry.content, encodings);
+                }
+            }
+
+            String etag = entry.etag;
+            byte[] body = entry.content;
+            if (variant != null) {
+                exchange.getResponseHeaders().set("Content-Encoding", variant.encoding);
+                etag = Compression.variantEtag(entry.etag, variant.encoding);
+                body = variant.content;
+            }
+            if (ConditionalRequest.handle(exchange, etag, entry.lastModified, entry.lastModifiedHeader)) {
+                return;
+            }
+            if (ranged && serveRanges(exchange, etag, entry.lastModified, entry.contentType, body.length,
+                    (os, position, count) -> os.write(entry.content, (int) position, (int) count))) {
+                return;
+            }
+            sendBytes(exchange, entry.contentType, body);
+        }
+
+        private void sendBytes(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, body.length == 0 || head ? -1 : body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                if (!head) {
+                    os.write(body);
+                }
+            }
+        }
+
+        private void servePHPFile(HttpExchange exchange, ServerConfig config, Path filePath) throws IOException {
+            CgiRequestBody requestBody;
+            try {
+                requestBody = CgiRequestBody.open(exchange, config.phpMaxBody);
+            } catch (CgiRequestBody.TooLargeException e) {
+                sendErrorResponse(exchange, 413, "Payload Too Large");
+                return;
+            }
+            try (requestBody) {
+                servePHPFile(exchange, config, filePath, requestBody);
+            }
+        }
+
+        // Réponse gardée en cache, ou exécution du script
+        private void servePHPFile(HttpExchange exchange, ServerConfig config, Path filePath,
+                CgiRequestBody requestBody) throws IOException {
+            long ttl = config.phpResponseCache != null ? config.phpResponseCache.ttlFor(exchange) : 0;
+            if (ttl <= 0) {
+                runPHP(exchange, config, filePath, requestBody,
+                        new CgiOutputStream(exchange, config.phpBufferSize));
+                return;
+            }
+
+            String key = config.phpResponseCache.key(exchange);
+            PhpResponseCache.Entry cached = config.phpResponseCache.get(key);
+            if (cached != null) {
+                sendCachedPHPResponse(exchange, cached);
+                return;
+            }
+
+            // Une exécution est déjà en cours pour cette clé : attendre son résultat
+            CompletableFuture<PhpResponseCache.Entry> pending = config.phpResponseCache.join(key);
+            if (pending != null) {
+                PhpResponseCache.Entry shared = null;
+                try {
+                    shared = pending.get(config.phpTimeout, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | TimeoutException e) {
+                    // Résultat indisponible : exécution normale ci-dessous
+                }
+                if (shared != null) {
+                    sendCachedPHPResponse(exchange, shared);
+                } else {
+                    runPHP(exchange, config, filePath, requestBody,
+                            new CgiOutputStream(exchange, config.phpBufferSize));
+                }
+                return;
+            }
+
+            // Meneur : la réponse est copiée au passage puis partagée
+            PhpResponseCache.Entry entry = null;
+            try {
+                CgiOutputStream output = new CgiOutputStream(exchange, config.phpBufferSize);
+                output.capture(config.phpResponseCache.getMaxEntryBytes());
+                runPHP(exchange, config, filePath, requestBody, output);
+                entry = config.phpResponseCache.toEntry(output.getStatus(), exchange.getResponseHeaders(),
+                        output.capturedBody(), ttl);
+            } finally {
+                config.phpResponseCache.complete(key, entry);
+            }
+        }
+
+        private void sendCachedPHPResponse(HttpExchange exchange, PhpResponseCache.Entry entry) throws IOException {
+            exchange.getResponseHeaders().putAll(entry.headers);
+            long age = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - entry.createdAt);
+            exchange.getResponseHeaders().set("Age", String.valueOf(age));
+            sendBytes(exchange, exchange.getResponseHeaders().getFirst("Content-Type"), entry.body);
+        }
+
+        // FastCGI si le pool est actif, sinon (ou s'il est saturé) un processus par requête
+        private void runPHP(HttpExchange exchange, ServerConfig config, Path filePath, CgiRequestBody requestBody,
+                CgiOutputStream output) throws IOException {
+            if (config.phpWorkerPool != null) {
+                try {
+                    servePHPWithFastCgi(exchange, config, filePath, requestBody, output);
+                    return;
+                } catch (PhpWorkerPool.UnavailableException e) {
+                    if (!config.phpFastCgiFallback) {
+                        exchange.getResponseHeaders().set("Retry-After", "1");
+                        sendErrorResponse(exchange, 503, "PHP Workers Unavailable");
+                        return;
+                    }
+                    logError("FastCGI unavailable, running PHP as a process: " + e.getMessage());
+                }
+            }
+            servePHPWithProcess(exchange, config, filePath, requestBody, output);
+        }
+
+        // Variables CGI/1.1 (RFC 3875) : environnement du processus ou paramètres FastCGI
+        private Map<String, String> cgiEnvironment(HttpExchange exchange, ServerConfig config, Path filePath,
+                CgiRequestBody requestBody) {
+            URI uri = exchange.getRequestURI();
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("GATEWAY_INTERFACE", "CGI/1.1");
+            params.put("SERVER_SOFTWARE", "NetworkHttpServer");
+            params.put("SERVER_PROTOCOL", exchange.getProtocol());
+            params.put("SERVER_NAME", serverName(exchange));
+            params.put("SERVER_PORT", String.valueOf(exchange.getLocalAddress().getPort()));
+            params.put("REMOTE_ADDR", exchange.getRemoteAddress().getAddress().getHostAddress());
+            params.put("REMOTE_PORT", String.valueOf(exchange.getRemoteAddress().getPort()));
+            params.put("REQUEST_METHOD", exchange.getRequestMethod());
+            params.put("REQUEST_URI", uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : ""));
+            params.put("QUERY_STRING", uri.getRawQuery() != null ? uri.getRawQuery() : "");
+            // Même chemin normalisé que celui qui a donné filePath : /a//b/../x.php devient /x.php
+            params.put("SCRIPT_NAME", "/" + RequestDispatch.normalize(uri.getPath()));
+            params.put("SCRIPT_FILENAME", filePath.toString());
+            params.put("DOCUMENT_ROOT", config.documentRoot.toString());
+            // Exigé par php-cgi lorsque cgi.force_redirect est actif
+            params.put("REDIRECT_STATUS", "200");
+            if (requestBody.length > 0) {
+                params.put("CONTENT_LENGTH", String.valueOf(requestBody.length));
+            }
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null) {
+                params.put("CONTENT_TYPE", contentType);
+            }
+
+            // En-têtes en HTTP_* ; ceux dont le nom contient autre chose que lettres, chiffres et tirets sont
+            // ignorés (X_User ne doit pas pouvoir se faire passer pour X-User), ainsi que Proxy : HTTP_PROXY
+            // serait pris par les bibliothèques du script pour leur proxy sortant
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                String name = header.getKey();
+                if (!name.matches("[A-Za-z0-9-]+") || name.equalsIgnoreCase("Proxy")
+                        || name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Content-Type")
+                        || name.equalsIgnoreCase("Transfer-Encoding")) {
+                    continue;
+                }
+                params.put("HTTP_" + name.toUpperCase(Locale.ROOT).replace('-', '_'),
+                        String.join(name.equalsIgnoreCase("Cookie") ? "; " : ", ", header.getValue()));
+            }
+            return params;
+        }
+
+        // Nom d'hôte demandé (Host sans le port), sinon l'adresse locale
+        private static String serverName(HttpExchange exchange) {
+            String host = exchange.getRequestHeaders().getFirst("Host");
+            if (host == null || host.isEmpty()) {
+                return exchange.getLocalAddress().getAddress().getHostAddress();
+            }
+            int end = host.startsWith("[") ? host.indexOf(']') + 1 : host.indexOf(':');
+            return end > 0 ? host.substring(0, end) : host;
+        }
+
+        private void servePHPWithProcess(HttpExchange exchange, ServerConfig config, Path filePath,
+                CgiRequestBody requestBody, CgiOutputStream output) throws IOException {
+            Process process = null;
+            try {
+                ProcessBuilder pb = new ProcessBuilder(config.phpInterpreter, filePath.toString());
+                pb.redirectErrorStream(true);
+                pb.directory(filePath.getParent().toFile());
+                pb.environment().putAll(cgiEnvironment(exchange, config, filePath, requestBody));
+                if (config.phpProcessCgi) {
+                    output.expectCgiHeaders();
+                }
+
+                long spawnStart = System.nanoTime();
+                process = pb.start();
+                if (metrics != null) {
+                    metrics.recordPhpSpawn(System.nanoTime() - spawnStart);
+                }
+
+                // Le délai est surveillé à part : la lecture de la sortie peut bloquer
+                Process running = process;
+                AtomicBoolean timedOut = new AtomicBoolean();
+                ScheduledFuture<?> watchdog = PHP_WATCHDOG.schedule(() -> {
+                    timedOut.set(true);
+                    running.destroyForcibly();
+                }, config.phpTimeout, TimeUnit.SECONDS);
+
+                // Corps copié sur un autre thread pendant la lecture de la sortie : le tube borne ce qui
+                // attend le script, et le client n'est plus lu tant que le script ne consomme pas
+                Future<?> upload;
+                if (requestBody.length > 0) {
+                    OutputStream stdin = process.getOutputStream();
+                    upload = PHP_STDIN.submit(() -> {
+                        requestBody.copyTo(stdin, config.phpBufferSize);
+                        return null;
+                    });
+                } else {
+                    process.getOutputStream().close();
+                    upload = CompletableFuture.completedFuture(null);
+                }
+
+                // Sortie relayée telle quelle, sans découpage en lignes
+                try (InputStream stdout = process.getInputStream()) {
+                    byte[] buffer = new byte[config.phpBufferSize];
+                    int read;
+                    while ((read = stdout.read(buffer)) > 0) {
+                        output.write(buffer, 0, read);
+                        // Le script marque une pause : ce qui est prêt part tout de suite,
+                        // sauf s'il se termine aussitôt (son code de sortie décide alors de la réponse)
+                        if (stdout.available() == 0 && !process.waitFor(PHP_FLUSH_DELAY_MS, TimeUnit.MILLISECONDS)) {
+                            output.flush();
+                        }
+                    }
+                }
+                int exitCode = process.waitFor();
+                watchdog.cancel(false);
+                // Le corps doit être lu jusqu'au bout, ou abandonné, avant que l'échange se termine
+                try {
+                    upload.get(config.phpTimeout, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    throw new IOException("Request body interrupted: " + e.getCause().getMessage(), e.getCause());
+                } catch (TimeoutException e) {
+                    upload.cancel(true);
+                    throw new IOException("Request body not received within " + config.phpTimeout + " s");
+                }
+                if (metrics != null) {
+                    if (timedOut.get()) {
+                        metrics.recordPhpTimeout(false);
+                    } else {
+                        metrics.recordPhpExit(false, exitCode);
+                    }
+                }
+
+                if (timedOut.get()) {
+                    sendPHPError(exchange, output, "PHP Execution Timeout");
+                    return;
+                }
+                if (exitCode != 0) {
+                    logError("PHP error output for " + filePath + ": " + output.bufferedOutput());
+                    sendPHPError(exchange, output, "PHP Execution Failed (Exit code: " + exitCode + ")");
+                    return;
+                }
+                output.finish();
+
+            } catch (Exception e) {
+                if (process != null) {
+                    process.destroyForcibly();
+                }
+                if (output.isCommitted()) {
+                    throw e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+                logError("Error executing PHP " + filePath + ": " + e);
+                sendErrorResponse(exchange, 500, "PHP Processing Error: " + e.getMessage());
+            }
+        }
+
+        // Les en-têtes déjà envoyés, couper la connexion est le seul moyen de signaler l'échec
+        private void sendPHPError(HttpExchange exchange, CgiOutputStream output, String message) throws IOException {
+            if (output.isCommitted()) {
+                throw new IOException(message + " after the response was committed");
+            }
+            sendErrorResponse(exchange, 500, message);
+        }
+
+        private void servePHPWithFastCgi(HttpExchange exchange, ServerConfig config, Path filePath,
+                CgiRequestBody requestBody, CgiOutputStream output) throws IOException {
+            Map<String, String> params = cgiEnvironment(exchange, config, filePath, requestBody);
+
+            // Les enregistrements STDOUT sont relayés au client dès leur arrivée
+            output.expectCgiHeaders();
+            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            int exitCode;
+            try {
+                // Corps relayé en enregistrements STDIN de taille bornée, au rythme du worker
+                exitCode = config.phpWorkerPool.execute(params, requestBody.length > 0 ? requestBody.stream : null,
+                        output, stderr);
+            } catch (SocketTimeoutException e) {
+                if (metrics != null) {
+                    metrics.recordPhpTimeout(true);
+                }
+                sendPHPError(exchange, output, "PHP Execution Timeout");
+                return;
+            } catch (PhpWorkerPool.UnavailableException e) {
+                throw e;
+            } catch (IOException e) {
+                if (output.isCommitted()) {
+                    throw e;
+                }
+                logError("FastCGI error for " + filePath + ": " + e.getMessage());
+                sendErrorResponse(exchange, 502, "PHP Worker Error");
+                return;
+            }
+
+            if (metrics != null) {
+                metrics.recordPhpExit(true, exitCode);
+            }
+            if (stderr.size() > 0) {
+                logError("PHP error output for " + filePath + ": " + stderr.toString("UTF-8"));
+            }
+            if (exitCode != 0) {
+                sendPHPError(exchange, output, "PHP Execution Failed (Exit code: " + exitCode + ")");
+                return;
+            }
+            output.finish();
+        }
+
+        private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+            String response = String.format("<html><body><h1>%d %s</h1></body></html>", statusCode, message);
+            exchange.sendResponseHeaders(statusCode, response.getBytes().length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+    }
+
+    // Méthode printNetworkInterfaces reste identique
+    private static void printNetworkInterfaces(int port) {
+        // Implémentation précédente
+        try {
+            System.out.println("\nAvailable Network Interfaces:");
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface iface = interfaces.nextElement();
+
+                if (iface.isLoopback() || !iface.isUp())
+                    continue;
+
+                Enumeration<InetAddress> addresses = iface.getInetAddresses();
+                while (addresses.hasMoreElements()) {
+                    InetAddress addr = addresses.nextElement();
+
+                    if (addr.getHostAddress().contains(":"))
+                        continue;
+
+                    System.out.println("Interface: " + iface.getName());
+                    System.out.println("  IP: " + addr.getHostAddress());
+                    System.out.println("  URL: http://" + addr.getHostAddress() + ":" + port);
+                    System.out.println();
+                }
+            }
+        } catch (SocketException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,515 @@
+package fluffy;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Échange HTTP du moteur NIO : même contrat que celui du JDK, pour que RootHandler serve les deux moteurs
+//
+// La réponse est écrite directement sur le canal non bloquant par le thread du handler ; quand le
+// tampon d'envoi du socket est plein, ce thread attend sur un sélecteur temporaire.
+class NioHttpExchange extends HttpExchange {
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    // Sélecteurs d'attente en écriture, partagés entre les threads des handlers
+    private static final Queue<Selector> WRITE_SELECTORS = new ConcurrentLinkedQueue<>();
+
+    private final SocketChannel channel;
+    private final BufferPool buffers;
+    private final long writeTimeoutMillis;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final InetSocketAddress localAddress;
+    private final InetSocketAddress remoteAddress;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private HttpContext context;
+    private boolean keepAlive;
+    private int responseCode = -1;
+    private ResponseStream rawResponse;
+    private InputStream requestStream;
+    private OutputStream responseStream;
+
+    NioHttpExchange(SocketChannel channel, BufferPool buffers, long writeTimeoutMillis, String method, URI uri,
+            String protocol, Headers requestHeaders, InputStream requestBody, boolean keepAlive) {
+        this.channel = channel;
+        this.buffers = buffers;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestStream = requestBody;
+        this.keepAlive = keepAlive;
+        this.localAddress = (InetSocketAddress) channel.socket().getLocalSocketAddress();
+        this.remoteAddress = (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+    }
+
+    void setHttpContext(HttpContext context) {
+        this.context = context;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    // Fin du handler : une réponse jamais commencée ou incomplète ferme la connexion
+    void finish() throws IOException {
+        if (rawResponse == null) {
+            keepAlive = false;
+            return;
+        }
+        rawResponse.close();
+    }
+
+    void abort() {
+        keepAlive = false;
+        if (rawResponse != null) {
+            rawResponse.release();
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (rawResponse == null) {
+                keepAlive = false;
+                return;
+            }
+            // Le flux de setStreams éventuel est fermé lui aussi
+            if (responseStream != null) {
+                responseStream.close();
+            }
+            rawResponse.close();
+        } catch (IOException e) {
+            keepAlive = false;
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestStream;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        if (responseStream != null) {
+            return responseStream;
+        }
+        // Comme dans le JDK : le flux peut être obtenu avant sendResponseHeaders
+        return rawResponse != null ? rawResponse : new PendingResponseStream();
+    }
+
+    // -1 : pas de corps ; 0 : longueur inconnue (chunked, ou fermeture de connexion en HTTP/1.0)
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (rawResponse != null) {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+        boolean noBody = "HEAD".equals(method) || rCode < 200 || rCode == 204 || rCode == 304;
+        boolean chunked = false;
+        if (noBody) {
+            if (responseLength > 0 && "HEAD".equals(method)) {
+                responseHeaders.set("Content-Length", String.valueOf(responseLength));
+            }
+        } else if (responseLength > 0) {
+            responseHeaders.set("Content-Length", String.valueOf(responseLength));
+        } else if (responseLength == 0) {
+            if ("HTTP/1.1".equals(protocol)) {
+                responseHeaders.set("Transfer-Encoding", "chunked");
+                chunked = true;
+            } else {
+                keepAlive = false;
+            }
+        } else {
+            responseHeaders.set("Content-Length", "0");
+        }
+
+        if ("close".equalsIgnoreCase(responseHeaders.getFirst("Connection"))) {
+            keepAlive = false;
+        }
+        if (!keepAlive) {
+            responseHeaders.set("Connection", "close");
+        } else if (!"HTTP/1.1".equals(protocol)) {
+            responseHeaders.set("Connection", "keep-alive");
+        }
+        if (!responseHeaders.containsKey("Date")) {
+            responseHeaders.set("Date", ConditionalRequest.httpDate(System.currentTimeMillis()));
+        }
+
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(reasonPhrase(rCode)).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+
+        long remaining = noBody ? 0 : responseLength > 0 ? responseLength : responseLength == 0 ? -1 : 0;
+        rawResponse = new ResponseStream(head.toString().getBytes(StandardCharsets.ISO_8859_1), chunked,
+                remaining);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestStream = i;
+        }
+        if (o != null) {
+            responseStream = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static String reasonPhrase(int code) {
+        switch (code) {
+            case 100:
+                return "Continue";
+            case 200:
+                return "OK";
+            case 204:
+                return "No Content";
+            case 206:
+                return "Partial Content";
+            case 301:
+                return "Moved Permanently";
+            case 302:
+                return "Found";
+            case 304:
+                return "Not Modified";
+            case 400:
+                return "Bad Request";
+            case 403:
+                return "Forbidden";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 413:
+                return "Payload Too Large";
+            case 416:
+                return "Range Not Satisfiable";
+            case 429:
+                return "Too Many Requests";
+            case 500:
+                return "Internal Server Error";
+            case 502:
+                return "Bad Gateway";
+            case 503:
+                return "Service Unavailable";
+            case 504:
+                return "Gateway Timeout";
+            default:
+                return "Status " + code;
+        }
+    }
+
+    // Écriture complète sur un canal non bloquant, en attendant qu'il redevienne disponible
+    static void writeFully(SocketChannel channel, long timeoutMillis, ByteBuffer... data) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : data) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            long written = channel.write(data);
+            remaining -= written;
+            if (written == 0) {
+                awaitWritable(channel, timeoutMillis);
+            }
+        }
+    }
+
+    private static void awaitWritable(SocketChannel channel, long timeoutMillis) throws IOException {
+        Selector selector = WRITE_SELECTORS.poll();
+        if (selector == null) {
+            selector = Selector.open();
+        }
+        try {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_WRITE);
+            try {
+                if (selector.select(timeoutMillis) == 0) {
+                    throw new SocketTimeoutException("Write timed out");
+                }
+            } finally {
+                key.cancel();
+                // Désenregistrement effectif avant de rendre le sélecteur
+                selector.selectNow();
+                selector.selectedKeys().clear();
+            }
+            WRITE_SELECTORS.offer(selector);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+    }
+
+    // Flux obtenu avant l'envoi des en-têtes, relayé ensuite vers le vrai corps de réponse
+    private final class PendingResponseStream extends OutputStream implements FileTransfer.ChannelSink {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            response().write(b, off, len);
+        }
+
+        @Override
+        public long transferFrom(FileChannel file, long position, long count) throws IOException {
+            return response().transferFrom(file, position, count);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (rawResponse != null) {
+                rawResponse.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rawResponse != null) {
+                rawResponse.close();
+            } else {
+                keepAlive = false;
+            }
+        }
+
+        private ResponseStream response() throws IOException {
+            if (rawResponse == null) {
+                throw new IOException("Response headers not sent yet");
+            }
+            return rawResponse;
+        }
+    }
+
+    // Corps de la réponse : tampon direct du pool, en-têtes envoyés avec les premiers octets
+    private final class ResponseStream extends OutputStream implements FileTransfer.ChannelSink {
+        private ByteBuffer head;
+        private final boolean chunked;
+        // Octets encore attendus pour une longueur fixe ; -1 si inconnue
+        private long remaining;
+        private ByteBuffer buffer;
+        private boolean closed;
+
+        ResponseStream(byte[] head, boolean chunked, long remaining) {
+            this.head = ByteBuffer.wrap(head);
+            this.chunked = chunked;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            while (len > 0) {
+                if (buffer == null) {
+                    buffer = buffers.acquire();
+                }
+                // Les gros blocs partent sans copie dans le tampon
+                if (buffer.position() == 0 && len >= buffer.capacity()) {
+                    send(ByteBuffer.wrap(b, off, len));
+                    return;
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (buffer != null) {
+                buffer.flip();
+                send(buffer);
+                buffer.clear();
+            } else {
+                send(ByteBuffer.allocate(0));
+            }
+        }
+
+        // FileChannel.transferTo vers le socket (sendfile), sans passer par le tampon
+        @Override
+        public long transferFrom(FileChannel file, long position, long count) throws IOException {
+            reserve(count);
+            flush();
+            if (chunked) {
+                writeFully(channel, writeTimeoutMillis, chunkHeader(count));
+            }
+            long sent = 0;
+            while (sent < count) {
+                long n = file.transferTo(position + sent, count - sent, channel);
+                if (n == 0) {
+                    if (position + sent >= file.size()) {
+                        throw new EOFException("File truncated during transfer");
+                    }
+                    awaitWritable(channel, writeTimeoutMillis);
+                }
+                sent += n;
+            }
+            if (chunked) {
+                writeFully(channel, writeTimeoutMillis, ByteBuffer.wrap(CRLF));
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                flush();
+                if (chunked) {
+                    writeFully(channel, writeTimeoutMillis, ByteBuffer.wrap(LAST_CHUNK));
+                }
+                if (remaining > 0) {
+                    // Corps plus court qu'annoncé : le client ne peut plus se resynchroniser
+                    keepAlive = false;
+                }
+            } finally {
+                closed = true;
+                release();
+            }
+        }
+
+        void release() {
+            closed = true;
+            if (buffer != null) {
+                buffers.release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void reserve(long count) throws IOException {
+            if (closed) {
+                throw new IOException("stream is closed");
+            }
+            if (remaining == 0 && count > 0) {
+                throw new IOException("too many bytes to write to stream");
+            }
+            if (remaining > 0) {
+                if (count > remaining) {
+                    throw new IOException("too many bytes to write to stream");
+                }
+                remaining -= count;
+            }
+        }
+
+        // Les en-têtes, l'en-tête de bloc et les données partent en une seule écriture groupée
+        private void send(ByteBuffer data) throws IOException {
+            if (!data.hasRemaining()) {
+                if (head != null) {
+                    writeFully(channel, writeTimeoutMillis, head);
+                    head = null;
+                }
+                return;
+            }
+            ByteBuffer pendingHead = head != null ? head : ByteBuffer.allocate(0);
+            head = null;
+            if (chunked) {
+                writeFully(channel, writeTimeoutMillis, pendingHead, chunkHeader(data.remaining()), data,
+                        ByteBuffer.wrap(CRLF));
+            } else {
+                writeFully(channel, writeTimeoutMillis, pendingHead, data);
+            }
+        }
+
+        private ByteBuffer chunkHeader(long size) {
+            return ByteBuffer.wrap((Long.toHexString(size) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+}
@@ -0,0 +1,856 @@
+package fluffy;
+
+import com.sun.net.httpserver.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Moteur HTTP/1.1 non bloquant (sélecteurs NIO), interchangeable avec com.sun.net.httpserver
+//
+// Un thread accepte les connexions et les répartit entre N boucles d'événements. Chaque boucle
+// lit et découpe les requêtes de ses connexions (keep-alive, requêtes enchaînées sans attendre
+// les réponses), puis confie chaque requête à l'exécuteur : un handler peut bloquer (PHP,
+// fichiers) sans arrêter la boucle. La réponse est écrite par le thread du handler (NioHttpExchange).
+// Le corps d'une requête n'est pas attendu : le handler le lit pendant qu'il arrive, à travers un
+// tampon borné ; tampon plein, la boucle cesse de lire le socket jusqu'à ce que le handler le vide.
+class NioHttpServer extends HttpServer {
+    private static final int MAX_HEADERS = 100;
+
+    private final int loopCount;
+    private final BufferPool buffers;
+    private final long idleTimeoutMillis;
+    private final long maxBodyBytes;
+    private final List<NioContext> contexts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+    // Handlers de requêtes avec corps quand l'exécuteur les aurait lancés sur la boucle elle-même
+    private final ExecutorService bodyHandlers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "nio-body-handler");
+        t.setDaemon(true);
+        return t;
+    });
+    private ServerSocketChannel serverChannel;
+    private InetSocketAddress address;
+    private Executor executor;
+    private EventLoop[] loops;
+    // running : nouvelles connexions et requêtes acceptées ; stopped : fin des boucles, après la vidange
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    NioHttpServer(int loopCount, int bufferSize, long idleTimeoutMillis, long maxBodyBytes) {
+        this.loopCount = loopCount;
+        this.buffers = new BufferPool(bufferSize, 1024, true);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    static NioHttpServer create(InetSocketAddress address, Properties config) throws IOException {
+        int loops = Integer.parseInt(config.getProperty("server.nio.loops", "0").trim());
+        int bufferSize = Integer.parseInt(config.getProperty("server.nio.buffer.size", "16384").trim());
+        int idleTimeout = Integer.parseInt(config.getProperty("server.nio.idle.timeout", "30").trim());
+        long maxBody = Long.parseLong(config.getProperty("server.nio.max.body", "67108864").trim());
+
+        NioHttpServer server = new NioHttpServer(loops > 0 ? loops : Runtime.getRuntime().availableProcessors(),
+                bufferSize, idleTimeout * 1000L, maxBody);
+        server.bind(address, 0);
+        return server;
+    }
+
+    String describe() {
+        return String.format("nio (%d event loops, %d-byte direct buffers, keep-alive %d s)",
+                loopCount, buffers.getBufferSize(), idleTimeoutMillis / 1000);
+    }
+
+    int getActiveExchanges() {
+        return activeExchanges.get();
+    }
+
+    @Override
+    public void bind(InetSocketAddress addr, int backlog) throws IOException {
+        if (serverChannel != null) {
+            throw new BindException("Server already bound");
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(addr, backlog);
+        serverChannel = channel;
+        address = (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    @Override
+    public void start() {
+        if (serverChannel == null || running) {
+            throw new IllegalStateException("Server not bound or already started");
+        }
+        running = true;
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            try {
+                loops[i] = new EventLoop(i);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open selector", e);
+            }
+            loops[i].start();
+        }
+        new Thread(this::acceptConnections, "nio-acceptor").start();
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    // Plus de nouvelles connexions, puis au plus delay secondes pour terminer les requêtes en cours
+    @Override
+    public void stop(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("negative delay parameter");
+        }
+        running = false;
+        closeQuietly(serverChannel);
+        // Les boucles continuent de tourner : les réponses en cours se terminent, puis leur connexion est fermée
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.submit(loop::closeWaitingConnections);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delay);
+        while (activeExchanges.get() > 0 && System.nanoTime() - deadline < 0) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        stopped = true;
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.selector.wakeup();
+            }
+        }
+        bodyHandlers.shutdown();
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        HttpContext context = createContext(path);
+        context.setHandler(handler);
+        return context;
+    }
+
+    @Override
+    public synchronized HttpContext createContext(String path) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Illegal value for path");
+        }
+        for (NioContext context : contexts) {
+            if (context.path.equals(path)) {
+                throw new IllegalArgumentException("Cannot add context to list");
+            }
+        }
+        NioContext context = new NioContext(path);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public synchronized void removeContext(String path) {
+        for (NioContext context : contexts) {
+            if (context.path.equals(path)) {
+                contexts.remove(context);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("cannot remove element from list");
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        removeContext(context.getPath());
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    // Contexte dont le chemin est le plus long préfixe de la requête
+    private NioContext findContext(String path) {
+        NioContext best = null;
+        for (NioContext context : contexts) {
+            if (path.startsWith(context.path) && (best == null || context.path.length() > best.path.length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    private void acceptConnections() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Exécution du handler (sur un thread de l'exécuteur), puis retour à la boucle de la connexion
+    private void handle(Connection connection, NioHttpExchange exchange) {
+        try {
+            NioContext context = findContext(exchange.getRequestURI().getPath());
+            if (context == null || context.handler == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.setHttpContext(context);
+                new Filter.Chain(context.filters, context.handler).doFilter(exchange);
+            }
+            exchange.finish();
+        } catch (IOException e) {
+            // Client parti ou réponse interrompue volontairement : la connexion est fermée
+            exchange.abort();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            exchange.abort();
+        } finally {
+            activeExchanges.decrementAndGet();
+            connection.loop.submit(() -> connection.requestDone(exchange));
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            // Déjà fermé
+        }
+    }
+
+    private final class EventLoop extends Thread {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final Set<Connection> connections = new HashSet<>();
+
+        EventLoop(int index) throws IOException {
+            super("nio-loop-" + index);
+            selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            submit(() -> {
+                try {
+                    Connection connection = new Connection(this, channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connections.add(connection);
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            });
+        }
+
+        // Les autres threads ne touchent jamais aux connexions : ils passent par la file de la boucle
+        void submit(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long nextSweep = System.nanoTime();
+            while (!stopped) {
+                try {
+                    selector.select(1000);
+                } catch (IOException e) {
+                    System.err.println("Selector failed: " + e.getMessage());
+                    break;
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                }
+                if (System.nanoTime() - nextSweep >= 0) {
+                    closeIdleConnections();
+                    nextSweep = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                }
+            }
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            closeQuietly(selector);
+        }
+
+        // Arrêt : connexions sans requête en cours fermées tout de suite, les autres après leur réponse
+        void closeWaitingConnections() {
+            for (Connection connection : new ArrayList<>(connections)) {
+                if (connection.inFlight == null) {
+                    connection.close();
+                }
+            }
+        }
+
+        // Connexions keep-alive inactives (ou requête incomplète) depuis trop longtemps
+        private void closeIdleConnections() {
+            long now = System.nanoTime();
+            for (Connection connection : new ArrayList<>(connections)) {
+                if (connection.inFlight == null
+                        && now - connection.lastActivity > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    // Requête reçue en attente de son corps
+    private static final class RequestHead {
+        final String method;
+        final URI uri;
+        final String protocol;
+        final Headers headers;
+        final boolean keepAlive;
+        final long contentLength;
+
+        RequestHead(String method, URI uri, String protocol, Headers headers, boolean keepAlive, long contentLength) {
+            this.method = method;
+            this.uri = uri;
+            this.protocol = protocol;
+            this.headers = headers;
+            this.keepAlive = keepAlive;
+            this.contentLength = contentLength;
+        }
+    }
+
+    // Erreur de protocole : réponse immédiate puis fermeture de la connexion
+    private static final class BadRequestException extends Exception {
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // État d'une connexion, manipulé uniquement par le thread de sa boucle
+    private final class Connection {
+        final EventLoop loop;
+        final SocketChannel channel;
+        SelectionKey key;
+        // Octets reçus et pas encore traités (null quand il n'y en a aucun : le tampon retourne au pool)
+        ByteBuffer input;
+        // Corps en cours de réception ; il peut survivre à sa requête, le reste étant alors ignoré
+        RequestBody body;
+        NioHttpExchange inFlight;
+        // Octets écrits par la boucle elle-même (100 Continue, refus) : jamais d'attente sur le socket, le reste
+        // part sur OP_WRITE, puis afterFlush lance la requête ou ferme la connexion
+        ByteBuffer output;
+        Runnable afterFlush;
+        boolean inputClosed;
+        boolean closed;
+        long lastActivity = System.nanoTime();
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        void onReadable() {
+            try {
+                if (input == null) {
+                    input = buffers.acquire();
+                }
+                int read = channel.read(input);
+                if (read < 0) {
+                    inputClosed = true;
+                }
+                lastActivity = System.nanoTime();
+                process();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // Découpe et lance les requêtes du tampon, une à la fois (ordre des réponses préservé) ; une requête
+        // part dès ses en-têtes, son corps est ensuite transmis au handler au fur et à mesure
+        void process() throws IOException {
+            try {
+                while (!closed && input != null) {
+                    if (body != null) {
+                        input.flip();
+                        body.receive(input);
+                        input.compact();
+                        if (!body.isComplete()) {
+                            break;
+                        }
+                        body = null;
+                    }
+                    if (output != null || inFlight != null || input.position() == 0) {
+                        break;
+                    }
+                    // Arrêt en cours : plus de nouvelle requête
+                    if (!running) {
+                        close();
+                        return;
+                    }
+                    int end = headEnd();
+                    if (end < 0) {
+                        if (!input.hasRemaining()) {
+                            throw new BadRequestException(431, "Request Header Fields Too Large");
+                        }
+                        break;
+                    }
+                    RequestHead head = parseHead(end);
+                    consume(end);
+                    if (head.contentLength > 0) {
+                        body = new RequestBody(this, head.contentLength);
+                        if ("100-continue".equalsIgnoreCase(head.headers.getFirst("Expect"))
+                                && input.position() < head.contentLength) {
+                            // La requête part une fois la ligne envoyée : sa réponse ne peut pas la doubler
+                            send("HTTP/1.1 100 Continue\r\n\r\n", () -> dispatch(head));
+                            continue;
+                        }
+                    }
+                    dispatch(head);
+                }
+            } catch (BadRequestException e) {
+                reject(e.status, e.getMessage());
+                return;
+            }
+            if (closed) {
+                return;
+            }
+            if (input != null && input.position() == 0) {
+                buffers.release(input);
+                input = null;
+            }
+            if (inputClosed && body != null) {
+                body.fail();
+            }
+            if (inputClosed && inFlight == null && output == null) {
+                close();
+                return;
+            }
+            if (output != null) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            // Tampon plein (corps que le handler ne lit pas encore, ou requête suivante pendant une réponse) :
+            // la lecture reprendra quand de la place se libérera
+            boolean full = input != null && !input.hasRemaining();
+            key.interestOps(inputClosed || full ? 0 : SelectionKey.OP_READ);
+        }
+
+        // Écrit ce qui passe sans attendre ; le reste est gardé jusqu'à ce que le socket redevienne disponible
+        private void send(String text, Runnable then) throws IOException {
+            output = ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+            afterFlush = then;
+            flush();
+        }
+
+        private void flush() throws IOException {
+            channel.write(output);
+            if (output.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            output = null;
+            Runnable then = afterFlush;
+            afterFlush = null;
+            then.run();
+        }
+
+        void onWritable() {
+            try {
+                lastActivity = System.nanoTime();
+                flush();
+                if (output == null && !closed) {
+                    process();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // De la place dans le tampon du corps, ou réponse terminée : reprise du traitement
+        void resume() {
+            if (closed) {
+                return;
+            }
+            try {
+                process();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void dispatch(RequestHead head) {
+            NioHttpExchange exchange = new NioHttpExchange(channel, buffers, idleTimeoutMillis, head.method,
+                    head.uri, head.protocol, head.headers, body != null ? body : InputStream.nullInputStream(),
+                    head.keepAlive);
+            inFlight = exchange;
+            activeExchanges.incrementAndGet();
+            boolean bodyPending = body != null;
+            Runnable task = () -> {
+                // Exécuteur qui travaille sur le thread appelant (dispatcher, caller-runs) : seule cette boucle
+                // remplit le corps, le handler l'attendrait indéfiniment ; il part donc sur un thread à lui.
+                // Une requête rejetée répond 503 sans lire le corps et reste sur place.
+                if (bodyPending && Thread.currentThread() == loop && !WorkerExecutor.isRejectedRequest()) {
+                    bodyHandlers.execute(() -> handle(this, exchange));
+                } else {
+                    handle(this, exchange);
+                }
+            };
+            if (executor != null) {
+                executor.execute(task);
+            } else {
+                task.run();
+            }
+        }
+
+        // Réponse terminée : requête suivante déjà reçue (pipelining) ou attente de la prochaine
+        void requestDone(NioHttpExchange exchange) {
+            if (closed) {
+                return;
+            }
+            inFlight = null;
+            if (!exchange.isKeepAlive() || !running) {
+                close();
+                return;
+            }
+            // Corps que le handler n'a pas lu en entier : le reste est reçu puis ignoré
+            if (body != null) {
+                body.discard();
+            }
+            lastActivity = System.nanoTime();
+            resume();
+        }
+
+        // Fin des en-têtes (\r\n\r\n) dans le tampon, ou -1
+        private int headEnd() {
+            int limit = input.position();
+            for (int i = 3; i < limit; i++) {
+                if (input.get(i) == '\n' && input.get(i - 1) == '\r' && input.get(i - 2) == '\n'
+                        && input.get(i - 3) == '\r') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private RequestHead parseHead(int end) throws BadRequestException {
+            byte[] bytes = new byte[end];
+            for (int i = 0; i < end; i++) {
+                bytes[i] = input.get(i);
+            }
+            String[] lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                throw new BadRequestException(400, "Bad Request");
+            }
+            URI uri;
+            try {
+                uri = new URI(requestLine[1]);
+            } catch (URISyntaxException e) {
+                throw new BadRequestException(400, "Bad Request");
+            }
+            if (lines.length - 1 > MAX_HEADERS) {
+                throw new BadRequestException(431, "Request Header Fields Too Large");
+            }
+
+            Headers headers = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    throw new BadRequestException(400, "Bad Request");
+                }
+                headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+
+            // Corps de requête : longueur connue uniquement
+            if (headers.containsKey("Transfer-Encoding")) {
+                throw new BadRequestException(501, "Not Implemented");
+            }
+            long contentLength = 0;
+            String length = headers.getFirst("Content-Length");
+            if (length != null) {
+                long value;
+                try {
+                    value = Long.parseLong(length);
+                } catch (NumberFormatException e) {
+                    throw new BadRequestException(400, "Bad Request");
+                }
+                if (value < 0) {
+                    throw new BadRequestException(400, "Bad Request");
+                }
+                if (value > maxBodyBytes) {
+                    throw new BadRequestException(413, "Payload Too Large");
+                }
+                contentLength = value;
+            }
+
+            String connection = headers.getFirst("Connection");
+            boolean keepAlive = requestLine[2].equals("HTTP/1.1")
+                    ? !"close".equalsIgnoreCase(connection)
+                    : "keep-alive".equalsIgnoreCase(connection);
+            return new RequestHead(requestLine[0], uri, requestLine[2], headers, keepAlive, contentLength);
+        }
+
+        private void consume(int bytes) {
+            input.flip();
+            input.position(bytes);
+            input.compact();
+        }
+
+        // Réponse d'erreur puis fermeture, une fois la réponse partie (ou au délai d'inactivité)
+        private void reject(int status, String message) {
+            String html = "<html><body><h1>" + status + " " + message + "</h1></body></html>";
+            String response = "HTTP/1.1 " + status + " " + message + "\r\nContent-Type: text/html\r\n"
+                    + "Content-Length: " + html.length() + "\r\nConnection: close\r\n\r\n" + html;
+            try {
+                send(response, this::close);
+            } catch (IOException e) {
+                // Le client est déjà parti
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (body != null) {
+                body.fail();
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+            if (input != null) {
+                buffers.release(input);
+                input = null;
+            }
+            loop.connections.remove(this);
+        }
+    }
+
+    // Corps d'une requête, du tampon de la connexion vers le thread du handler
+    //
+    // La boucle y dépose ce qu'elle reçoit tant qu'il y a de la place ; le handler le vide et, s'il a
+    // libéré de la place alors que la boucle attendait, lui demande de reprendre la lecture du socket.
+    private final class RequestBody extends InputStream {
+        private final Connection connection;
+        private final byte[] buffer = new byte[buffers.getBufferSize()];
+        // Octets encore attendus du réseau
+        private long remaining;
+        private int start;
+        private int count;
+        private boolean waiting;
+        private boolean discarded;
+        private boolean failed;
+
+        RequestBody(Connection connection, long length) {
+            this.connection = connection;
+            this.remaining = length;
+        }
+
+        // Thread de la boucle : prend ce qui tient dans le tampon (tout, si le corps est ignoré)
+        synchronized void receive(ByteBuffer input) {
+            int n = (int) Math.min(input.remaining(), remaining);
+            if (discarded) {
+                input.position(input.position() + n);
+                remaining -= n;
+                return;
+            }
+            n = Math.min(n, buffer.length - count);
+            remaining -= n;
+            // Tampon circulaire : au plus deux copies, jusqu'à la fin du tableau puis depuis le début
+            while (n > 0) {
+                int end = (start + count) % buffer.length;
+                int chunk = Math.min(n, end >= start ? buffer.length - end : start - end);
+                input.get(buffer, end, chunk);
+                count += chunk;
+                n -= chunk;
+            }
+            waiting = remaining > 0 && count == buffer.length;
+            notifyAll();
+        }
+
+        synchronized boolean isComplete() {
+            return remaining == 0;
+        }
+
+        // Réponse envoyée : ce qui reste du corps n'intéresse plus personne
+        synchronized void discard() {
+            discarded = true;
+            count = 0;
+            notifyAll();
+        }
+
+        // Connexion fermée avant la fin du corps
+        synchronized void fail() {
+            if (remaining > 0) {
+                failed = true;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            boolean resume;
+            int n;
+            synchronized (this) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+                while (count == 0) {
+                    if (discarded) {
+                        throw new IOException("Request already answered");
+                    }
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    if (failed) {
+                        throw new IOException("Connection closed before the end of the request body");
+                    }
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        throw new SocketTimeoutException("Request body not received within "
+                                + idleTimeoutMillis / 1000 + " s");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while reading the request body");
+                    }
+                }
+                n = Math.min(len, Math.min(count, buffer.length - start));
+                System.arraycopy(buffer, start, b, off, n);
+                start = (start + n) % buffer.length;
+                count -= n;
+                resume = waiting;
+                waiting = false;
+            }
+            if (resume) {
+                connection.loop.submit(connection::resume);
+            }
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return count;
+        }
+    }
+
+    private final class NioContext extends HttpContext {
+        private final String path;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final List<Filter> filters = new CopyOnWriteArrayList<>();
+        private volatile HttpHandler handler;
+
+        NioContext(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            if (handler == null) {
+                throw new NullPointerException("Null handler parameter");
+            }
+            if (this.handler != null) {
+                throw new IllegalArgumentException("handler already set");
+            }
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return NioHttpServer.this;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        // L'authentification n'est pas prise en charge par ce moteur
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            if (auth != null) {
+                throw new UnsupportedOperationException("Authenticators are not supported by the nio engine");
+            }
+            return null;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package fluffy;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Pages visitées du navigateur, pour précédent/suivant sans réseau et rechargement conditionnel
+//
+// Deux niveaux bornés en octets, du moins au plus récemment utilisé : la mémoire, puis un dossier
+// facultatif où sont déplacées les pages sorties de la mémoire. Chaque page garde ses validateurs
+// (ETag, Last-Modified) pour être revalidée par If-None-Match / If-Modified-Since.
+final class PageCache {
+    // Page gardée : corps décodé et validateurs
+    static final class Entry {
+        final String uri;
+        final String contentType;
+        final String body;
+        final String etag;
+        final String lastModified;
+        // Taille en mémoire estimée : deux octets par caractère
+        final long size;
+
+        Entry(String uri, String contentType, String body, String etag, String lastModified) {
+            this.uri = uri;
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = 2L * body.length();
+        }
+
+        // En-têtes d'une requête conditionnelle
+        Map<String, String> validators() {
+            Map<String, String> headers = new HashMap<>();
+            if (etag != null) {
+                headers.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                headers.put("If-Modified-Since", lastModified);
+            }
+            return headers;
+        }
+    }
+
+    // Page déplacée sur disque : le corps est relu à la demande
+    private static final class DiskEntry {
+        final String uri;
+        final String contentType;
+        final String etag;
+        final String lastModified;
+        final Path file;
+        final long size;
+
+        DiskEntry(Entry entry, Path file, long size) {
+            this.uri = entry.uri;
+            this.contentType = entry.contentType;
+            this.etag = entry.etag;
+            this.lastModified = entry.lastModified;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    private static final String FILE_PREFIX = "page-";
+
+    private final long memoryBudget;
+    private final Path diskDirectory;
+    private final long diskBudget;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private long nextFile;
+
+    private PageCache(long memoryBudget, Path diskDirectory, long diskBudget) {
+        this.memoryBudget = memoryBudget;
+        this.diskDirectory = diskDirectory;
+        this.diskBudget = diskBudget;
+    }
+
+    // browser.cache.memory (octets), browser.cache.disk (dossier, absent = mémoire seule), browser.cache.disk.size
+    static PageCache fromSystemProperties() {
+        long memoryBudget = Long.getLong("browser.cache.memory", 32L * 1024 * 1024);
+        String directory = System.getProperty("browser.cache.disk");
+        Path diskDirectory = null;
+        if (directory != null && !directory.trim().isEmpty()) {
+            diskDirectory = Paths.get(directory.trim()).toAbsolutePath();
+            try {
+                Files.createDirectories(diskDirectory);
+                // Pages d'une session précédente : leurs validateurs ne sont plus connus
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, FILE_PREFIX + "*")) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Page cache directory unavailable, keeping pages in memory only: " + e);
+                diskDirectory = null;
+            }
+        }
+        return new PageCache(memoryBudget, diskDirectory,
+                Long.getLong("browser.cache.disk.size", 256L * 1024 * 1024));
+    }
+
+    // Réponse qui peut être gardée telle quelle
+    static boolean isCacheable(int status, HttpHeaders headers) {
+        return status == 200
+                && !headers.firstValue("Cache-Control").orElse("").toLowerCase(Locale.ROOT).contains("no-store");
+    }
+
+    // Page rangée sous l'adresse demandée (avant redirection) ; null si la réponse ne doit pas être gardée
+    static Entry entryOf(String uri, int status, String contentType, HttpHeaders headers, String body) {
+        if (!isCacheable(status, headers)) {
+            return null;
+        }
+        return new Entry(uri, contentType, body, headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null));
+    }
+
+    // Taille au-delà de laquelle une page n'est gardée dans aucun niveau
+    long maxEntrySize() {
+        return diskDirectory != null ? Math.max(memoryBudget, diskBudget) : memoryBudget;
+    }
+
+    synchronized Entry get(String uri) {
+        Entry entry = memory.get(uri);
+        if (entry != null) {
+            return entry;
+        }
+        DiskEntry stored = disk.remove(uri);
+        if (stored == null) {
+            return null;
+        }
+        diskBytes -= stored.size;
+        try {
+            entry = new Entry(stored.uri, stored.contentType,
+                    new String(Files.readAllBytes(stored.file), StandardCharsets.UTF_8),
+                    stored.etag, stored.lastModified);
+            Files.deleteIfExists(stored.file);
+        } catch (IOException e) {
+            return null;
+        }
+        // Remontée en mémoire : la page redevient la plus récente
+        put(entry);
+        return entry;
+    }
+
+    synchronized void put(Entry entry) {
+        remove(entry.uri);
+        if (entry.size > memoryBudget) {
+            spill(entry);
+            return;
+        }
+        memory.put(entry.uri, entry);
+        memoryBytes += entry.size;
+        for (Iterator<Entry> it = memory.values().iterator(); memoryBytes > memoryBudget && it.hasNext(); ) {
+            Entry evicted = it.next();
+            it.remove();
+            memoryBytes -= evicted.size;
+            spill(evicted);
+        }
+    }
+
+    synchronized void remove(String uri) {
+        Entry entry = memory.remove(uri);
+        if (entry != null) {
+            memoryBytes -= entry.size;
+        }
+        DiskEntry stored = disk.remove(uri);
+        if (stored != null) {
+            diskBytes -= stored.size;
+            deleteQuietly(stored.file);
+        }
+    }
+
+    // Page sortie de la mémoire : écrite sur disque si ce niveau existe, sinon oubliée
+    private void spill(Entry entry) {
+        if (diskDirectory == null) {
+            return;
+        }
+        byte[] content = entry.body.getBytes(StandardCharsets.UTF_8);
+        if (content.length > diskBudget) {
+            return;
+        }
+        Path file = diskDirectory.resolve(FILE_PREFIX + nextFile++);
+        try {
+            Files.write(file, content);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            return;
+        }
+        disk.put(entry.uri, new DiskEntry(entry, file, content.length));
+        diskBytes += content.length;
+        for (Iterator<DiskEntry> it = disk.values().iterator(); diskBytes > diskBudget && it.hasNext(); ) {
+            DiskEntry evicted = it.next();
+            it.remove();
+            diskBytes -= evicted.size;
+            deleteQuietly(evicted.file);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Fichier déjà supprimé ou dossier inaccessible
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package fluffy;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// Accès réseau du navigateur : un seul client HTTP partagé (connexions gardées ouvertes et réutilisées,
+// HTTP/2 négocié en TLS) et décodage des réponses octet par octet selon Content-Encoding et le charset
+final class PageFetcher {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+    // Réponse décodée
+    static final class Page {
+        final URI uri;
+        final int status;
+        final String contentType;
+        final HttpHeaders headers;
+        final String body;
+
+        Page(URI uri, int status, String contentType, HttpHeaders headers, String body) {
+            this.uri = uri;
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    // Réponse dont seuls les en-têtes sont arrivés ; fermer le flux abandonne l'échange
+    static final class Stream implements Closeable {
+        final URI uri;
+        final int status;
+        final String contentType;
+        final HttpHeaders headers;
+        final Charset charset;
+        // Octets annoncés avant décompression ; -1 si inconnu (transfert chunked)
+        final long contentLength;
+        private final InputStream body;
+
+        private Stream(HttpResponse<InputStream> response) {
+            HttpHeaders headers = response.headers();
+            String contentType = headers.firstValue("Content-Type").orElse("text/html");
+            this.uri = response.uri();
+            this.status = response.statusCode();
+            this.contentType = mimeType(contentType);
+            this.headers = headers;
+            this.charset = charsetOf(contentType);
+            this.contentLength = headers.firstValueAsLong("Content-Length").orElse(-1);
+            this.body = response.body();
+        }
+
+        // Corps décompressé et décodé ; progress reçoit le total des octets reçus sur le réseau
+        Reader reader(LongConsumer progress) throws IOException {
+            InputStream counted = new FilterInputStream(body) {
+                private long received;
+
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        progress.accept(++received);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = super.read(buffer, offset, length);
+                    if (n > 0) {
+                        progress.accept(received += n);
+                    }
+                    return n;
+                }
+            };
+            return new InputStreamReader(decoding(counted, headers.firstValue("Content-Encoding").orElse("identity")),
+                    charset);
+        }
+
+        @Override
+        public void close() {
+            try {
+                body.close();
+            } catch (IOException e) {
+                // Échange déjà terminé
+            }
+        }
+    }
+
+    private PageFetcher() {
+    }
+
+    // Requête GET ; annuler le résultat (cancel) interrompt l'échange en cours
+    static CompletableFuture<Page> fetch(URI uri, Map<String, String> extraHeaders) {
+        return send(uri, extraHeaders, HttpResponse.BodyHandlers.ofByteArray(), PageFetcher::decode);
+    }
+
+    // Requête GET dont le corps sera lu au fur et à mesure ; le résultat arrive avec les en-têtes
+    static CompletableFuture<Stream> open(URI uri, Map<String, String> extraHeaders) {
+        return send(uri, extraHeaders, HttpResponse.BodyHandlers.ofInputStream(), Stream::new);
+    }
+
+    private static <T, R> CompletableFuture<R> send(URI uri, Map<String, String> extraHeaders,
+            HttpResponse.BodyHandler<T> handler, Function<HttpResponse<T>, R> convert) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(RESPONSE_TIMEOUT)
+                .header("Accept-Encoding", "gzip, deflate");
+        // En clair, pas de tentative de mise à niveau h2c à chaque requête : HTTP/1.1 avec keep-alive
+        if (!"https".equalsIgnoreCase(uri.getScheme())) {
+            request.version(HttpClient.Version.HTTP_1_1);
+        }
+        extraHeaders.forEach(request::header);
+        CompletableFuture<HttpResponse<T>> exchange = CLIENT.sendAsync(request.build(), handler);
+        CompletableFuture<R> result = exchange.thenApply(convert);
+        // L'annulation d'une étape dérivée ne remonte pas d'elle-même jusqu'à l'échange
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static Page decode(HttpResponse<byte[]> response) {
+        HttpHeaders headers = response.headers();
+        String contentType = headers.firstValue("Content-Type").orElse("text/html");
+        try {
+            byte[] body = decompress(response.body(), headers.firstValue("Content-Encoding").orElse("identity"));
+            return new Page(response.uri(), response.statusCode(), mimeType(contentType), headers,
+                    new String(body, charsetOf(contentType)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode response from " + response.uri(), e);
+        }
+    }
+
+    static byte[] decompress(byte[] body, String encoding) throws IOException {
+        // 304 et 204 : l'en-tête décrit la représentation, pas ce corps vide
+        if (body.length == 0) {
+            return body;
+        }
+        try (InputStream in = decoding(new ByteArrayInputStream(body), encoding)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream decoding(InputStream input, String encoding) throws IOException {
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(input);
+            case "deflate":
+                return new InflaterInputStream(input);
+            case "identity":
+            case "":
+                return input;
+            default:
+                throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+
+    // Paramètre charset de Content-Type ; UTF-8 s'il est absent ou inconnu
+    static Charset charsetOf(String contentType) {
+        for (String parameter : contentType.split(";")) {
+            String[] pair = parameter.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(pair[1].trim().replace("\"", ""));
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String mimeType(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        return (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,216 @@
+package fluffy;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Micro-cache des réponses PHP (durée de vie courte, par chemin) avec regroupement des requêtes simultanées
+class PhpResponseCache {
+    static final class Entry {
+        final int status;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+        final long createdAt = System.nanoTime();
+        final long expiresAt;
+
+        Entry(int status, Map<String, List<String>> headers, byte[] body, long ttlNanos) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.expiresAt = createdAt + ttlNanos;
+        }
+
+        int size() {
+            return body.length + 256;
+        }
+    }
+
+    // En-têtes propres à chaque envoi, jamais rejoués depuis le cache
+    private static final Set<String> TRANSIENT_HEADERS = new HashSet<>(
+            Arrays.asList("date", "content-length", "transfer-encoding", "connection"));
+
+    private final long defaultTtlNanos;
+    private final Map<String, Long> ttlByPath;
+    private final List<String> varyHeaders;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private PhpResponseCache(Properties config) {
+        defaultTtlNanos = secondsToNanos(config.getProperty("php.cache.ttl", "0"));
+        maxBytes = Long.parseLong(config.getProperty("php.cache.max.bytes", "8388608").trim());
+        maxEntryBytes = (int) Math.min(maxBytes,
+                Long.parseLong(config.getProperty("php.cache.max.entry.bytes", "262144").trim()));
+
+        // php.cache.ttl./complexe.php=2 : durée propre à un chemin
+        Map<String, Long> ttl = new HashMap<>();
+        for (String name : config.stringPropertyNames()) {
+            if (name.startsWith("php.cache.ttl.")) {
+                ttl.put(name.substring("php.cache.ttl.".length()), secondsToNanos(config.getProperty(name)));
+            }
+        }
+        ttlByPath = ttl;
+
+        List<String> vary = new ArrayList<>();
+        for (String header : config.getProperty("php.cache.vary", "Cookie,Accept-Language").split(",")) {
+            if (!header.trim().isEmpty()) {
+                vary.add(header.trim());
+            }
+        }
+        varyHeaders = vary;
+    }
+
+    private static long secondsToNanos(String seconds) {
+        return (long) (Double.parseDouble(seconds.trim()) * 1_000_000_000L);
+    }
+
+    // Renvoie null si le cache n'est pas activé dans la configuration
+    static PhpResponseCache fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("php.cache.enabled", "false").trim())) {
+            return null;
+        }
+        return new PhpResponseCache(config);
+    }
+
+    // Durée de vie pour cette requête ; 0 si elle ne doit pas passer par le cache
+    long ttlFor(HttpExchange exchange) {
+        String method = exchange.getRequestMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)
+                || exchange.getRequestHeaders().containsKey("Authorization")) {
+            return 0;
+        }
+        return ttlByPath.getOrDefault(exchange.getRequestURI().getPath(), defaultTtlNanos);
+    }
+
+    // Chemin + requête + en-têtes choisis (php.cache.vary)
+    String key(HttpExchange exchange) {
+        URI uri = exchange.getRequestURI();
+        StringBuilder key = new StringBuilder(uri.getRawPath());
+        if (uri.getRawQuery() != null) {
+            key.append('?').append(uri.getRawQuery());
+        }
+        Headers requestHeaders = exchange.getRequestHeaders();
+        for (String header : varyHeaders) {
+            key.append('\n').append(header).append(':');
+            List<String> values = requestHeaders.get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAt > 0) {
+            entries.remove(key);
+            currentBytes -= entry.size();
+            entry = null;
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    // Exécution déjà en cours pour cette clé, ou null si l'appelant devient le meneur (il doit appeler complete)
+    CompletableFuture<Entry> join(String key) {
+        CompletableFuture<Entry> pending = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Fin de l'exécution du meneur ; entry est null si la réponse n'est pas réutilisable
+    void complete(String key, Entry entry) {
+        if (entry != null) {
+            put(key, entry);
+        }
+        CompletableFuture<Entry> pending = inFlight.remove(key);
+        if (pending != null) {
+            pending.complete(entry);
+        }
+    }
+
+    // Seules les réponses 200 publiques sans cookie sont conservées
+    Entry toEntry(int status, Headers responseHeaders, byte[] body, long ttlNanos) {
+        if (status != 200 || body == null || body.length > maxEntryBytes
+                || responseHeaders.containsKey("Set-Cookie")) {
+            return null;
+        }
+        String cacheControl = responseHeaders.getFirst("Cache-Control");
+        if (cacheControl != null) {
+            String directives = cacheControl.toLowerCase(Locale.ROOT);
+            if (directives.contains("no-store") || directives.contains("private") || directives.contains("no-cache")) {
+                return null;
+            }
+        }
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            if (!TRANSIENT_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+        }
+        return new Entry(status, headers, body, ttlNanos);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            currentBytes -= previous.size();
+        }
+        currentBytes += entry.size();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().size();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    synchronized long getSizeBytes() {
+        return currentBytes;
+    }
+
+    String describe() {
+        return String.format("PHP response cache (%d bytes, default TTL %d ms, %d path rules, vary %s)",
+                maxBytes, defaultTtlNanos / 1_000_000, ttlByPath.size(), varyHeaders);
+    }
+}
@@ -0,0 +1,300 @@
+package fluffy;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+// Pool de processus php-cgi persistants, joints en FastCGI sur la boucle locale
+class PhpWorkerPool {
+    private static final String HOST = "127.0.0.1";
+    // Ports tenus par un worker, tous pools confondus : après un rechargement, l'ancien pool
+    // garde ses workers occupés le temps de leur requête
+    private static final Set<Integer> BOUND_PORTS = ConcurrentHashMap.newKeySet();
+
+    // Aucun worker n'a pu être obtenu : la requête n'a pas été envoyée à PHP
+    static class UnavailableException extends IOException {
+        UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private class Worker {
+        final int port;
+        final Process process;
+        FastCgiConnection connection;
+        int requests;
+        long lastUsed = System.nanoTime();
+
+        Worker(int port, Process process) {
+            this.port = port;
+            this.process = process;
+        }
+
+        // php-cgi peut mettre un moment à ouvrir son port après le démarrage
+        FastCgiConnection connection() throws IOException {
+            if (connection == null) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeoutMs);
+                while (true) {
+                    try {
+                        connection = new FastCgiConnection(HOST, port, startupTimeoutMs, requestTimeoutMs);
+                        break;
+                    } catch (IOException e) {
+                        if (!process.isAlive() || System.nanoTime() > deadline) {
+                            throw e;
+                        }
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while connecting to php-cgi");
+                        }
+                    }
+                }
+            }
+            return connection;
+        }
+
+        void destroy() {
+            try {
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (IOException e) {
+                // Connexion déjà fermée
+            }
+            process.destroy();
+        }
+    }
+
+    private final String cgiBinary;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int maxRequestsPerWorker;
+    private final int requestTimeoutMs;
+    private final int startupTimeoutMs;
+    private final long idleTimeoutNanos;
+    private final BlockingDeque<Worker> idleWorkers = new LinkedBlockingDeque<>();
+    private final BlockingQueue<Integer> freePorts = new LinkedBlockingQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger recycled = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+    private volatile LongConsumer spawnListener;
+    private volatile boolean closed;
+
+    private PhpWorkerPool(Properties config) {
+        cgiBinary = config.getProperty("php.fastcgi.binary", "php-cgi").trim();
+        minWorkers = Integer.parseInt(config.getProperty("php.fastcgi.pool.min", "2").trim());
+        maxWorkers = Integer.parseInt(config.getProperty("php.fastcgi.pool.max", "8").trim());
+        maxRequestsPerWorker = Integer.parseInt(config.getProperty("php.fastcgi.max.requests", "500").trim());
+        requestTimeoutMs = Integer.parseInt(config.getProperty("php.timeout", "10").trim()) * 1000;
+        startupTimeoutMs = Integer.parseInt(config.getProperty("php.fastcgi.startup.timeout", "3").trim()) * 1000;
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(
+                Integer.parseInt(config.getProperty("php.fastcgi.idle.timeout", "60").trim()));
+
+        int basePort = Integer.parseInt(config.getProperty("php.fastcgi.port", "9100").trim());
+        for (int i = 0; i < maxWorkers; i++) {
+            freePorts.add(basePort + i);
+        }
+
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "php-health-check");
+            t.setDaemon(true);
+            return t;
+        });
+        int healthInterval = Integer.parseInt(config.getProperty("php.fastcgi.health.interval", "10").trim());
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, healthInterval, healthInterval, TimeUnit.SECONDS);
+    }
+
+    // Renvoie null si le pool n'est pas activé dans la configuration
+    static PhpWorkerPool fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("php.fastcgi.enabled", "false").trim())) {
+            return null;
+        }
+        PhpWorkerPool pool = new PhpWorkerPool(config);
+        pool.ensureMinimum();
+        return pool;
+    }
+
+    // Exécute un script et renvoie le code de sortie FastCGI
+    int execute(Map<String, String> params, InputStream stdin, OutputStream stdout, OutputStream stderr)
+            throws IOException {
+        Worker worker = acquire();
+        boolean reusable = false;
+        try {
+            int status = worker.connection().execute(params, stdin, stdout, stderr);
+            reusable = true;
+            return status;
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private Worker acquire() throws UnavailableException {
+        if (closed) {
+            throw new UnavailableException("PHP worker pool replaced by a configuration reload", null);
+        }
+        Worker worker = idleWorkers.pollFirst();
+        if (worker != null) {
+            return worker;
+        }
+        if (size.incrementAndGet() <= maxWorkers) {
+            try {
+                return spawn();
+            } catch (IOException e) {
+                size.decrementAndGet();
+                throw new UnavailableException("Cannot start php-cgi: " + e.getMessage(), e);
+            }
+        }
+        size.decrementAndGet();
+
+        try {
+            worker = idleWorkers.pollFirst(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker == null) {
+            throw new UnavailableException("All " + maxWorkers + " PHP workers are busy", null);
+        }
+        return worker;
+    }
+
+    private void release(Worker worker, boolean reusable) {
+        worker.requests++;
+        worker.lastUsed = System.nanoTime();
+        if (closed) {
+            retire(worker);
+        } else if (!reusable || !worker.process.isAlive() || worker.requests >= maxRequestsPerWorker) {
+            retire(worker);
+            ensureMinimum();
+        } else {
+            // LIFO : les workers chauds sont réutilisés en premier
+            idleWorkers.offerFirst(worker);
+        }
+    }
+
+    // Appelé avec une place déjà réservée dans size
+    private Worker spawn() throws IOException {
+        Integer port = null;
+        for (int i = freePorts.size(); i > 0 && port == null; i--) {
+            Integer candidate = freePorts.poll();
+            if (candidate == null) {
+                break;
+            }
+            if (BOUND_PORTS.add(candidate)) {
+                port = candidate;
+            } else {
+                freePorts.add(candidate);
+            }
+        }
+        if (port == null) {
+            throw new IOException("No free FastCGI port");
+        }
+        ProcessBuilder pb = new ProcessBuilder(cgiBinary, "-b", HOST + ":" + port);
+        pb.environment().put("PHP_FCGI_CHILDREN", "0");
+        pb.environment().put("PHP_FCGI_MAX_REQUESTS", String.valueOf(maxRequestsPerWorker));
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        try {
+            long started = System.nanoTime();
+            Process process = pb.start();
+            LongConsumer listener = spawnListener;
+            if (listener != null) {
+                listener.accept(System.nanoTime() - started);
+            }
+            return new Worker(port, process);
+        } catch (IOException e) {
+            BOUND_PORTS.remove(port);
+            freePorts.add(port);
+            throw e;
+        }
+    }
+
+    private void retire(Worker worker) {
+        worker.destroy();
+        BOUND_PORTS.remove(worker.port);
+        freePorts.add(worker.port);
+        size.decrementAndGet();
+        recycled.incrementAndGet();
+    }
+
+    private void ensureMinimum() {
+        while (!closed) {
+            int current = size.get();
+            if (current >= minWorkers) {
+                return;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                try {
+                    idleWorkers.offerLast(spawn());
+                } catch (IOException e) {
+                    size.decrementAndGet();
+                    System.err.println("Cannot start php-cgi worker: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    // Remplace les workers morts ou muets et libère ceux inactifs au-delà du minimum
+    private void checkHealth() {
+        int idleCount = idleWorkers.size();
+        long now = System.nanoTime();
+        for (int i = 0; i < idleCount; i++) {
+            Worker worker = idleWorkers.pollLast();
+            if (worker == null) {
+                break;
+            }
+            boolean healthy;
+            try {
+                healthy = worker.process.isAlive() && worker.connection().ping();
+            } catch (IOException e) {
+                healthy = false;
+            }
+            if (!healthy) {
+                System.err.println("PHP worker on port " + worker.port + " failed its health check, replacing it");
+                retire(worker);
+            } else if (size.get() > minWorkers && now - worker.lastUsed > idleTimeoutNanos) {
+                retire(worker);
+            } else {
+                idleWorkers.offerFirst(worker);
+            }
+        }
+        ensureMinimum();
+    }
+
+    // Reçoit la durée (ns) de chaque démarrage de php-cgi
+    void setSpawnListener(LongConsumer listener) {
+        spawnListener = listener;
+    }
+
+    int getSize() {
+        return size.get();
+    }
+
+    int getIdleCount() {
+        return idleWorkers.size();
+    }
+
+    int getRecycledCount() {
+        return recycled.get();
+    }
+
+    String describe() {
+        return String.format("FastCGI pool (%s, %d-%d workers, recycled after %d requests)",
+                cgiBinary, minWorkers, maxWorkers, maxRequestsPerWorker);
+    }
+
+    // Les workers libres s'arrêtent tout de suite, les autres à la fin de leur requête
+    void shutdown() {
+        closed = true;
+        healthChecker.shutdownNow();
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            retire(worker);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package fluffy;
+
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// Table de dispatch compilée une fois au chargement de la configuration
+//
+// Normalise le chemin demandé sans expression régulière et refuse, sans appel au système de fichiers,
+// tout chemin qui sortirait de la racine. Associe chaque extension à son traitement, son type MIME et
+// sa compressibilité dans une table à adressage ouvert : la recherche ne crée ni sous-chaîne ni
+// chaîne en minuscules.
+final class RequestDispatch {
+    enum Handler { STATIC, PHP }
+
+    static final class FileType {
+        final String extension;
+        final Handler handler;
+        final String contentType;
+        final boolean compressible;
+        // Extension présente dans supported.extensions
+        final boolean allowed;
+        final String icon;
+
+        FileType(String extension, Handler handler, String contentType, boolean allowed, String icon) {
+            this.extension = extension;
+            this.handler = handler;
+            this.contentType = contentType;
+            this.compressible = Compression.isCompressibleType(contentType);
+            this.allowed = allowed;
+            this.icon = icon;
+        }
+    }
+
+    private static final String DEFAULT_ICON = "[F]";
+
+    // Types connus : extension, type MIME, icône des listes de fichiers
+    private static final String[][] KNOWN_TYPES = {
+            { "html", "text/html; charset=UTF-8", "[H]" },
+            { "htm", "text/html; charset=UTF-8", "[H]" },
+            { "php", "text/html; charset=UTF-8", "[P]" },
+            { "txt", "text/plain", "[-]" },
+            { "css", "text/css", "[C]" },
+            { "js", "application/javascript", "[J]" },
+            { "mjs", "application/javascript", "[J]" },
+            { "json", "application/json", DEFAULT_ICON },
+            { "xml", "application/xml", DEFAULT_ICON },
+            { "svg", "image/svg+xml", "[I]" },
+            { "csv", "text/csv", DEFAULT_ICON },
+            { "md", "text/markdown", DEFAULT_ICON },
+            { "pdf", "application/pdf", "[P]" },
+            { "doc", "application/msword", "[W]" },
+            { "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "[W]" },
+            { "jpg", "image/jpeg", "[I]" },
+            { "jpeg", "image/jpeg", "[I]" },
+            { "png", "image/png", "[I]" },
+            { "gif", "image/gif", "[I]" },
+            { "webp", "image/webp", "[I]" },
+            { "ico", "image/x-icon", "[I]" },
+            { "mp3", "audio/mpeg", "[♪]" },
+            { "wav", "audio/wav", "[♪]" },
+            { "ogg", "audio/ogg", "[♪]" },
+            { "mp4", "video/mp4", "[V]" },
+            { "webm", "video/webm", "[V]" },
+            { "avi", "video/x-msvideo", "[V]" },
+            { "zip", "application/zip", "[Z]" },
+            { "rar", "application/vnd.rar", "[Z]" },
+            { "7z", "application/x-7z-compressed", "[Z]" },
+            { "gz", "application/gzip", "[Z]" },
+            { "tar", "application/x-tar", "[Z]" },
+            { "woff", "font/woff", DEFAULT_ICON },
+            { "woff2", "font/woff2", DEFAULT_ICON },
+            { "wasm", "application/wasm", DEFAULT_ICON },
+    };
+
+    private final FileType[] slots;
+    private final int mask;
+
+    private RequestDispatch(Map<String, FileType> types) {
+        int size = Integer.highestOneBit(Math.max(2, types.size() * 2 - 1)) << 1;
+        slots = new FileType[size];
+        mask = size - 1;
+        for (FileType type : types.values()) {
+            int index = spread(type.extension.hashCode()) & mask;
+            while (slots[index] != null) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = type;
+        }
+    }
+
+    static RequestDispatch fromConfig(Properties config) {
+        List<String> supported = new ArrayList<>();
+        for (String extension : config.getProperty("supported.extensions", "html,htm,php,txt,css,js").split(",")) {
+            extension = extension.trim().toLowerCase(Locale.ROOT);
+            if (!extension.isEmpty()) {
+                supported.add(extension);
+            }
+        }
+
+        Map<String, FileType> types = new LinkedHashMap<>();
+        for (String[] known : KNOWN_TYPES) {
+            types.put(known[0], new FileType(known[0], handlerFor(known[0]), known[1], supported.contains(known[0]),
+                    known[2]));
+        }
+        // Extension autorisée mais inconnue : type déduit une fois ici, plus jamais par requête
+        for (String extension : supported) {
+            if (!types.containsKey(extension)) {
+                String contentType = URLConnection.guessContentTypeFromName("file." + extension);
+                types.put(extension, new FileType(extension, handlerFor(extension),
+                        contentType != null ? contentType : "application/octet-stream", true, DEFAULT_ICON));
+            }
+        }
+        return new RequestDispatch(types);
+    }
+
+    private static Handler handlerFor(String extension) {
+        return "php".equals(extension) ? Handler.PHP : Handler.STATIC;
+    }
+
+    // Type associé à l'extension du nom (ou du dernier segment d'un chemin) ; null si inconnue ou absente
+    FileType lookup(String name) {
+        int end = name.length();
+        int dot = -1;
+        for (int i = end - 1; i >= 0; i--) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                dot = i;
+                break;
+            }
+            if (c == '/') {
+                break;
+            }
+        }
+        if (dot < 0) {
+            return null;
+        }
+
+        // Même calcul que String.hashCode() sur l'extension en minuscules
+        int hash = 0;
+        for (int i = dot + 1; i < end; i++) {
+            hash = 31 * hash + toLowerAscii(name.charAt(i));
+        }
+        int length = end - dot - 1;
+        for (int index = spread(hash) & mask; slots[index] != null; index = (index + 1) & mask) {
+            FileType type = slots[index];
+            if (type.extension.length() == length && type.extension.regionMatches(true, 0, name, dot + 1, length)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // Icône d'un nom de fichier dans les listes
+    String iconFor(String name) {
+        FileType type = lookup(name);
+        return type != null ? type.icon : DEFAULT_ICON;
+    }
+
+    // Chemin relatif à la racine, sans segment vide, "." ni ".." ; null s'il sortirait de la racine
+    // ou contient un caractère qui changerait sa résolution (séparateur Windows, lecteur, octet nul)
+    static String normalize(String path) {
+        int length = path.length();
+        boolean canonical = length > 0 && path.charAt(0) == '/';
+        for (int i = 0; i < length; i++) {
+            char c = path.charAt(i);
+            if (c == '\\' || c == ':' || c == 0) {
+                return null;
+            }
+            if ((c == '/' || c == '.') && i > 0 && path.charAt(i - 1) == '/') {
+                canonical = false;
+            }
+        }
+        // Cas courant : déjà canonique, une seule copie
+        if (canonical) {
+            return path.substring(1);
+        }
+
+        StringBuilder out = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            while (i < length && path.charAt(i) == '/') {
+                i++;
+            }
+            int start = i;
+            while (i < length && path.charAt(i) != '/') {
+                i++;
+            }
+            int segment = i - start;
+            if (segment == 0 || (segment == 1 && path.charAt(start) == '.')) {
+                continue;
+            }
+            if (segment == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.') {
+                if (out.length() == 0) {
+                    return null;
+                }
+                out.setLength(Math.max(out.lastIndexOf("/"), 0));
+                continue;
+            }
+            if (out.length() > 0) {
+                out.append('/');
+            }
+            out.append(path, start, i);
+        }
+        return out.toString();
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
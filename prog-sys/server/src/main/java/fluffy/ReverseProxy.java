@@ -0,0 +1,812 @@
+package fluffy;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Mode frontal : les requêtes sont relayées à plusieurs instances NetworkHttpServer (proxy inverse)
+//
+// Backend choisi par nombre de requêtes en cours, ou par hachage cohérent du chemin ou de l'adresse
+// du client (retirer un backend ne déplace que ses propres clés). Connexions HTTP/1.1 gardées ouvertes
+// vers chaque backend, corps relayés au fil de l'eau dans les deux sens. Un backend est retiré après
+// des échecs consécutifs (requêtes ou vérifications périodiques) et réintégré par les vérifications.
+class ReverseProxy {
+    private static final int BUFFER_SIZE = 16384;
+    private static final int MAX_HEADER_LINE = 65536;
+    // Points de chaque backend sur l'anneau du hachage cohérent
+    private static final int RING_REPLICAS = 128;
+    // Propres à une connexion : jamais relayés (RFC 9110, section 7.6.1)
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList("connection", "keep-alive",
+            "proxy-connection", "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding",
+            "upgrade"));
+
+    // Aucun backend n'a répondu ; rien n'a encore été envoyé au client
+    static class UnavailableException extends IOException {
+        final int status;
+
+        UnavailableException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Corps de la requête du client interrompu : ni le backend ni sa santé ne sont en cause
+    private static class RequestBodyException extends IOException {
+        RequestBodyException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private enum Balance {
+        LEAST_OUTSTANDING, HASH
+    }
+
+    // Connexion HTTP/1.1 vers un backend
+    private static final class Upstream {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        long lastUsed;
+
+        Upstream(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Connexion déjà fermée
+            }
+        }
+    }
+
+    // Ligne d'état et en-têtes d'une réponse
+    private static final class Response {
+        int status;
+        final List<String[]> headers = new ArrayList<>();
+        long contentLength = -1;
+        boolean chunked;
+        boolean keepAlive;
+
+        // Les réponses intermédiaires (1xx) sont lues et ignorées
+        static Response read(InputStream in) throws IOException {
+            while (true) {
+                Response response = new Response();
+                String statusLine = readLine(in);
+                String[] parts = statusLine.split(" ", 3);
+                if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+                    throw new IOException("Malformed status line: " + statusLine);
+                }
+                response.status = Integer.parseInt(parts[1]);
+                boolean close = parts[0].equals("HTTP/1.0");
+                String line;
+                while (!(line = readLine(in)).isEmpty()) {
+                    int colon = line.indexOf(':');
+                    if (colon <= 0) {
+                        continue;
+                    }
+                    String name = line.substring(0, colon).trim();
+                    String value = line.substring(colon + 1).trim();
+                    if (name.equalsIgnoreCase("Content-Length")) {
+                        response.contentLength = Long.parseLong(value);
+                    } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                        response.chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                    } else if (name.equalsIgnoreCase("Connection")) {
+                        close = value.equalsIgnoreCase("close")
+                                || (close && !value.equalsIgnoreCase("keep-alive"));
+                    }
+                    response.headers.add(new String[] { name, value });
+                }
+                if (response.status >= 200) {
+                    response.keepAlive = !close;
+                    return response;
+                }
+            }
+        }
+
+        boolean hasBody(boolean head) {
+            return !head && status != 204 && status != 304;
+        }
+    }
+
+    private final class Backend {
+        final String host;
+        final int port;
+        final String label;
+        final ConcurrentLinkedDeque<Upstream> idle = new ConcurrentLinkedDeque<>();
+        final AtomicInteger idleCount = new AtomicInteger();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder requests = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder connectionsOpened = new LongAdder();
+        volatile boolean healthy = true;
+        // Échecs consécutifs d'un backend en service, réussites consécutives d'un backend retiré
+        private volatile int failed;
+        private int passed;
+
+        Backend(String host, int port) {
+            this.host = host;
+            this.port = port;
+            this.label = host + ":" + port;
+        }
+
+        // Connexion gardée la plus récente ; celles restées inactives trop longtemps sont fermées
+        Upstream pooled() {
+            Upstream upstream;
+            while ((upstream = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (System.nanoTime() - upstream.lastUsed < idleTimeoutNanos) {
+                    return upstream;
+                }
+                upstream.close();
+            }
+            return null;
+        }
+
+        Upstream connect() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(readTimeoutMillis);
+                socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+                connectionsOpened.increment();
+                return new Upstream(socket);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void release(Upstream upstream) {
+            if (!closed) {
+                upstream.lastUsed = System.nanoTime();
+                if (idleCount.incrementAndGet() <= maxIdle) {
+                    idle.offerFirst(upstream);
+                    return;
+                }
+                idleCount.decrementAndGet();
+            }
+            upstream.close();
+        }
+
+        // Connexions inactives depuis plus de maxIdleNanos, des plus anciennes aux plus récentes
+        void closeIdle(long maxIdleNanos) {
+            Upstream upstream;
+            while ((upstream = idle.peekLast()) != null
+                    && System.nanoTime() - upstream.lastUsed >= maxIdleNanos) {
+                if (idle.removeLastOccurrence(upstream)) {
+                    idleCount.decrementAndGet();
+                    upstream.close();
+                }
+            }
+        }
+
+        void succeeded() {
+            if (!healthy || failed != 0) {
+                report(true, null);
+            }
+        }
+
+        synchronized void report(boolean ok, String reason) {
+            if (ok) {
+                failed = 0;
+                if (!healthy && ++passed >= healthyAfter) {
+                    healthy = true;
+                    passed = 0;
+                    System.out.println("Backend " + label + " back in service");
+                }
+                return;
+            }
+            passed = 0;
+            // Sans vérifications périodiques, rien ne pourrait réintégrer un backend retiré
+            if (healthy && healthIntervalMillis > 0 && ++failed >= unhealthyAfter) {
+                healthy = false;
+                failed = 0;
+                closeIdle(0);
+                System.err.println("Backend " + label + " taken out of service: " + reason);
+            }
+        }
+    }
+
+    private final Backend[] backends;
+    private final Balance balance;
+    private final boolean hashByClient;
+    // Anneau du hachage cohérent : positions triées et backend de chaque position
+    private final long[] ringPoints;
+    private final Backend[] ringOwners;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxIdle;
+    private final long idleTimeoutNanos;
+    private final String healthPath;
+    private final long healthIntervalMillis;
+    private final int healthTimeoutMillis;
+    private final int unhealthyAfter;
+    private final int healthyAfter;
+    private final ScheduledExecutorService healthChecker;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final LongAdder unavailable = new LongAdder();
+    private volatile boolean closed;
+
+    private ReverseProxy(Properties config, List<String> addresses) {
+        backends = new Backend[addresses.size()];
+        for (int i = 0; i < backends.length; i++) {
+            String address = addresses.get(i);
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Backend must be host:port: " + address);
+            }
+            backends[i] = new Backend(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        }
+        balance = Balance.valueOf(config.getProperty("proxy.balance", "least-outstanding").trim()
+                .toUpperCase(Locale.ROOT).replace('-', '_'));
+        hashByClient = "client".equalsIgnoreCase(config.getProperty("proxy.hash.key", "path").trim());
+        connectTimeoutMillis = Integer.parseInt(config.getProperty("proxy.connect.timeout", "1000").trim());
+        readTimeoutMillis = Integer.parseInt(config.getProperty("proxy.read.timeout", "30").trim()) * 1000;
+        maxIdle = Integer.parseInt(config.getProperty("proxy.pool.idle", "16").trim());
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(
+                Integer.parseInt(config.getProperty("proxy.pool.idle.timeout", "15").trim()));
+        healthPath = config.getProperty("proxy.health.path", "/").trim();
+        healthIntervalMillis = Long.parseLong(config.getProperty("proxy.health.interval", "2000").trim());
+        healthTimeoutMillis = Integer.parseInt(config.getProperty("proxy.health.timeout", "1000").trim());
+        unhealthyAfter = Math.max(1, Integer.parseInt(config.getProperty("proxy.health.fails", "2").trim()));
+        healthyAfter = Math.max(1, Integer.parseInt(config.getProperty("proxy.health.passes", "2").trim()));
+
+        if (balance == Balance.HASH) {
+            List<Object[]> points = new ArrayList<>();
+            for (Backend backend : backends) {
+                for (int replica = 0; replica < RING_REPLICAS; replica++) {
+                    points.add(new Object[] { hash(backend.label + "#" + replica), backend });
+                }
+            }
+            points.sort(Comparator.comparingLong(point -> (Long) point[0]));
+            ringPoints = new long[points.size()];
+            ringOwners = new Backend[points.size()];
+            for (int i = 0; i < ringPoints.length; i++) {
+                ringPoints[i] = (Long) points.get(i)[0];
+                ringOwners[i] = (Backend) points.get(i)[1];
+            }
+        } else {
+            ringPoints = null;
+            ringOwners = null;
+        }
+
+        healthChecker = Executors.newScheduledThreadPool(Math.min(backends.length, 4), r -> {
+            Thread t = new Thread(r, "proxy-health-check");
+            t.setDaemon(true);
+            return t;
+        });
+        for (Backend backend : backends) {
+            if (healthIntervalMillis > 0) {
+                healthChecker.scheduleWithFixedDelay(() -> check(backend), 0, healthIntervalMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+            long sweep = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos));
+            healthChecker.scheduleWithFixedDelay(() -> backend.closeIdle(idleTimeoutNanos), sweep, sweep,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Renvoie null si aucun backend n'est configuré : le serveur sert alors la racine des documents
+    static ReverseProxy fromConfig(Properties config) {
+        List<String> addresses = new ArrayList<>();
+        for (String address : config.getProperty("proxy.backends", "").split(",")) {
+            if (!address.trim().isEmpty()) {
+                addresses.add(address.trim());
+            }
+        }
+        if (addresses.isEmpty()) {
+            return null;
+        }
+        return new ReverseProxy(config, addresses);
+    }
+
+    // Relaie la requête au backend choisi et sa réponse au client
+    void handle(HttpExchange exchange) throws IOException {
+        long length = requestLength(exchange.getRequestHeaders());
+        // Sans corps, la requête peut être renvoyée à un autre backend si le premier ne répond pas
+        boolean replayable = length == 0;
+        byte[] head = requestHead(exchange, length);
+        Backend failed = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Backend backend = choose(exchange, failed);
+            if (backend == null) {
+                break;
+            }
+            backend.outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                if (forward(exchange, backend, head, length, replayable)) {
+                    backend.latency.record(System.nanoTime() - start);
+                    return;
+                }
+            } finally {
+                backend.outstanding.decrementAndGet();
+            }
+            failed = backend;
+            if (!replayable) {
+                break;
+            }
+        }
+        if (failed == null) {
+            unavailable.increment();
+            throw new UnavailableException(503, "No backend in service");
+        }
+        throw new UnavailableException(502, "Backend " + failed.label + " did not respond");
+    }
+
+    // false si le backend a échoué avant de répondre : rien n'a été envoyé au client
+    private boolean forward(HttpExchange exchange, Backend backend, byte[] head, long length, boolean replayable)
+            throws IOException {
+        backend.requests.increment();
+        // Une connexion gardée a pu être fermée par le backend entre-temps : seule une requête sans corps
+        // peut alors être renvoyée sur une connexion neuve, une requête avec corps part donc sur une neuve
+        Upstream upstream = replayable ? backend.pooled() : null;
+        boolean reused = upstream != null;
+        Response response;
+        while (true) {
+            try {
+                if (upstream == null) {
+                    upstream = backend.connect();
+                }
+                upstream.out.write(head);
+                if (length != 0) {
+                    sendBody(exchange.getRequestBody(), upstream.out, length);
+                }
+                upstream.out.flush();
+                response = Response.read(upstream.in);
+                break;
+            } catch (RequestBodyException e) {
+                upstream.close();
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                if (upstream != null) {
+                    upstream.close();
+                }
+                if (reused) {
+                    reused = false;
+                    upstream = null;
+                    continue;
+                }
+                backend.failures.increment();
+                backend.report(false, e.toString());
+                return false;
+            }
+        }
+        backend.succeeded();
+
+        boolean headRequest = "HEAD".equals(exchange.getRequestMethod());
+        boolean hasBody = response.hasBody(headRequest);
+        Headers responseHeaders = exchange.getResponseHeaders();
+        Set<String> connectionTokens = new HashSet<>();
+        for (String[] header : response.headers) {
+            if (header[0].equalsIgnoreCase("Connection")) {
+                connectionTokens.addAll(tokens(header[1]));
+            }
+        }
+        for (String[] header : response.headers) {
+            String name = header[0].toLowerCase(Locale.ROOT);
+            if (!HOP_BY_HOP.contains(name) && !connectionTokens.contains(name) && !name.equals("content-length")) {
+                responseHeaders.add(header[0], header[1]);
+            }
+        }
+
+        // Longueur connue relayée telle quelle ; sinon transfert chunked vers le client
+        long responseLength = !hasBody || response.contentLength == 0 ? -1
+                : response.contentLength > 0 && !response.chunked ? response.contentLength : 0;
+        boolean reusable = response.keepAlive;
+        try {
+            exchange.sendResponseHeaders(response.status, responseLength);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (hasBody) {
+                    InputStream body;
+                    if (response.chunked) {
+                        body = new ChunkedBody(upstream.in);
+                    } else if (response.contentLength >= 0) {
+                        body = new FixedLengthBody(upstream.in, response.contentLength);
+                    } else {
+                        // Corps délimité par la fermeture de la connexion
+                        body = upstream.in;
+                        reusable = false;
+                    }
+                    relay(body, out);
+                }
+            }
+        } catch (IOException e) {
+            // Réponse interrompue (backend ou client) : la connexion n'est plus dans un état connu
+            upstream.close();
+            backend.failures.increment();
+            throw e;
+        }
+        if (reusable) {
+            backend.release(upstream);
+        } else {
+            upstream.close();
+        }
+        return true;
+    }
+
+    // Backend en service : hachage cohérent, ou le moins de requêtes en cours (ex aequo à tour de rôle)
+    private Backend choose(HttpExchange exchange, Backend excluded) {
+        if (balance == Balance.HASH) {
+            String key = hashByClient ? exchange.getRemoteAddress().getAddress().getHostAddress()
+                    : String.valueOf(exchange.getRequestURI().getRawPath());
+            int index = Arrays.binarySearch(ringPoints, hash(key));
+            if (index < 0) {
+                index = -index - 1;
+            }
+            // Backend retiré : ses clés passent au suivant sur l'anneau, les autres ne bougent pas
+            for (int i = 0; i < ringOwners.length; i++) {
+                Backend backend = ringOwners[(index + i) % ringOwners.length];
+                if (backend.healthy && backend != excluded) {
+                    return backend;
+                }
+            }
+            return null;
+        }
+        Backend best = null;
+        int start = rotation.getAndIncrement();
+        for (int i = 0; i < backends.length; i++) {
+            Backend backend = backends[Math.floorMod(start + i, backends.length)];
+            if (backend.healthy && backend != excluded
+                    && (best == null || backend.outstanding.get() < best.outstanding.get())) {
+                best = backend;
+            }
+        }
+        return best;
+    }
+
+    // Vérification active : connexion neuve et GET de proxy.health.path, réussie pour un statut 2xx ou 3xx
+    private void check(Backend backend) {
+        try (Socket socket = new Socket()) {
+            socket.setSoTimeout(healthTimeoutMillis);
+            socket.connect(new InetSocketAddress(backend.host, backend.port), healthTimeoutMillis);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + healthPath + " HTTP/1.1\r\n"
+                    + "Host: " + backend.label + "\r\n"
+                    + "User-Agent: fluffy-health-check\r\n"
+                    + "Connection: close\r\n"
+                    + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            int status = Response.read(new BufferedInputStream(socket.getInputStream())).status;
+            if (status >= 200 && status < 400) {
+                backend.report(true, null);
+            } else {
+                backend.report(false, "health check returned " + status);
+            }
+        } catch (IOException | RuntimeException e) {
+            backend.report(false, "health check failed: " + e);
+        }
+    }
+
+    // Octets du corps de la requête : 0 sans corps, -1 si la longueur n'est pas connue (chunked)
+    private static long requestLength(Headers headers) {
+        String contentLength = headers.getFirst("Content-Length");
+        if (contentLength != null) {
+            return Long.parseLong(contentLength.trim());
+        }
+        return headers.containsKey("Transfer-Encoding") ? -1 : 0;
+    }
+
+    // Ligne de requête et en-têtes pour le backend : Host d'origine conservé (liens des listes de fichiers),
+    // client ajouté à X-Forwarded-For
+    private static byte[] requestHead(HttpExchange exchange, long length) {
+        URI uri = exchange.getRequestURI();
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        StringBuilder head = new StringBuilder(512).append(exchange.getRequestMethod()).append(' ').append(path);
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(" HTTP/1.1\r\n");
+
+        Headers headers = exchange.getRequestHeaders();
+        Set<String> connectionTokens = new HashSet<>();
+        for (String value : headers.getOrDefault("Connection", List.of())) {
+            connectionTokens.addAll(tokens(value));
+        }
+        String forwardedFor = null;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            // Expect : le corps part sans attendre de 100 Continue ; longueur et transfert fixés plus bas
+            if (HOP_BY_HOP.contains(name) || connectionTokens.contains(name) || name.equals("content-length")
+                    || name.equals("expect")) {
+                continue;
+            }
+            if (name.equals("x-forwarded-for")) {
+                forwardedFor = String.join(", ", header.getValue());
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (!headers.containsKey("Host")) {
+            InetSocketAddress local = exchange.getLocalAddress();
+            head.append("Host: ").append(local.getHostString()).append(':').append(local.getPort()).append("\r\n");
+        }
+        String client = exchange.getRemoteAddress().getAddress().getHostAddress();
+        head.append("X-Forwarded-For: ").append(forwardedFor != null ? forwardedFor + ", " + client : client)
+                .append("\r\n");
+        if (!headers.containsKey("X-Forwarded-Proto")) {
+            head.append("X-Forwarded-Proto: http\r\n");
+        }
+        if (length > 0) {
+            head.append("Content-Length: ").append(length).append("\r\n");
+        } else if (length < 0) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        }
+        return head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Corps du client relayé au fil de la lecture, sans le garder en mémoire
+    private static void sendBody(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = length;
+        while (length < 0 || remaining > 0) {
+            int n;
+            try {
+                n = in.read(buffer, 0, length < 0 ? buffer.length : (int) Math.min(buffer.length, remaining));
+            } catch (IOException e) {
+                throw new RequestBodyException("Request body interrupted", e);
+            }
+            if (n < 0) {
+                if (length >= 0) {
+                    throw new RequestBodyException("Request body shorter than Content-Length", null);
+                }
+                break;
+            }
+            if (length < 0) {
+                out.write((Integer.toHexString(n) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.write(buffer, 0, n);
+                out.write('\r');
+                out.write('\n');
+            } else {
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        if (length < 0) {
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    // Ce qui arrive du backend part aussitôt vers le client (sortie PHP progressive)
+    private static void relay(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    private static Set<String> tokens(String value) {
+        Set<String> tokens = new HashSet<>();
+        for (String token : value.split(",")) {
+            tokens.add(token.trim().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Connection closed by backend");
+            }
+            if (b != '\r') {
+                if (line.length() >= MAX_HEADER_LINE) {
+                    throw new IOException("Header line too long");
+                }
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    // FNV-1a sur 64 bits suivi du brassage final de MurmurHash3 : positions bien réparties sur l'anneau
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // Corps de longueur annoncée ; la fin de la connexion avant le dernier octet est une erreur
+    private static final class FixedLengthBody extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        FixedLengthBody(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n < 0) {
+                throw new EOFException("Backend closed the connection before the end of the body");
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+
+    // Corps chunked décodé ; les trailers sont lus et ignorés
+    private static final class ChunkedBody extends InputStream {
+        private final InputStream in;
+        private long chunkRemaining;
+        private boolean finished;
+
+        ChunkedBody(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (chunkRemaining == 0) {
+                String sizeLine = readLine(in);
+                int extension = sizeLine.indexOf(';');
+                chunkRemaining = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine)
+                        .trim(), 16);
+                if (chunkRemaining == 0) {
+                    while (!readLine(in).isEmpty()) {
+                        // Trailers ignorés
+                    }
+                    finished = true;
+                    return -1;
+                }
+            }
+            int n = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+            if (n < 0) {
+                throw new EOFException("Backend closed the connection inside a chunk");
+            }
+            chunkRemaining -= n;
+            if (chunkRemaining == 0) {
+                readLine(in);
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), chunkRemaining);
+        }
+    }
+
+    void shutdown() {
+        closed = true;
+        healthChecker.shutdownNow();
+        for (Backend backend : backends) {
+            backend.closeIdle(0);
+        }
+    }
+
+    long getUnavailable() {
+        return unavailable.sum();
+    }
+
+    // Séries par backend, ajoutées à l'export de Metrics
+    void exportMetrics(StringBuilder out) {
+        Metrics.header(out, "fluffy_proxy_backend_up", "gauge", "1 if the backend is in service, by backend.");
+        for (Backend backend : backends) {
+            sample(out, "fluffy_proxy_backend_up", backend, backend.healthy ? 1 : 0);
+        }
+        Metrics.header(out, "fluffy_proxy_backend_outstanding", "gauge", "Requests in progress, by backend.");
+        for (Backend backend : backends) {
+            sample(out, "fluffy_proxy_backend_outstanding", backend, backend.outstanding.get());
+        }
+        Metrics.header(out, "fluffy_proxy_backend_requests_total", "counter", "Requests sent, by backend.");
+        for (Backend backend : backends) {
+            sample(out, "fluffy_proxy_backend_requests_total", backend, backend.requests.sum());
+        }
+        Metrics.header(out, "fluffy_proxy_backend_failures_total", "counter",
+                "Requests that failed on the backend connection, by backend.");
+        for (Backend backend : backends) {
+            sample(out, "fluffy_proxy_backend_failures_total", backend, backend.failures.sum());
+        }
+        Metrics.header(out, "fluffy_proxy_backend_connections_opened_total", "counter",
+                "Connections opened to the backend (the others were reused), by backend.");
+        for (Backend backend : backends) {
+            sample(out, "fluffy_proxy_backend_connections_opened_total", backend, backend.connectionsOpened.sum());
+        }
+        Metrics.header(out, "fluffy_proxy_backend_idle_connections", "gauge", "Kept-alive connections, by backend.");
+        for (Backend backend : backends) {
+            sample(out, "fluffy_proxy_backend_idle_connections", backend, backend.idleCount.get());
+        }
+        Metrics.header(out, "fluffy_proxy_backend_duration_seconds", "histogram",
+                "Time to relay a request and its response, by backend.");
+        for (Backend backend : backends) {
+            Metrics.histogram(out, "fluffy_proxy_backend_duration_seconds", labels(backend), backend.latency);
+        }
+        Metrics.header(out, "fluffy_proxy_backend_duration_quantile_seconds", "gauge",
+                "Relay time quantiles since start, by backend (about 12% precision).");
+        for (Backend backend : backends) {
+            Metrics.quantiles(out, "fluffy_proxy_backend_duration_quantile_seconds", labels(backend),
+                    backend.latency);
+        }
+    }
+
+    private static void sample(StringBuilder out, String name, Backend backend, long value) {
+        out.append(name).append('{').append(labels(backend)).append("} ").append(value).append('\n');
+    }
+
+    private static String labels(Backend backend) {
+        return "backend=\"" + backend.label + "\"";
+    }
+
+    String describe() {
+        StringBuilder out = new StringBuilder("reverse proxy to ");
+        for (int i = 0; i < backends.length; i++) {
+            out.append(i > 0 ? ", " : "").append(backends[i].label);
+        }
+        out.append(" (").append(balance == Balance.HASH
+                ? "consistent hash by " + (hashByClient ? "client" : "path") : "least outstanding requests");
+        out.append(healthIntervalMillis > 0
+                ? ", health GET " + healthPath + " every " + healthIntervalMillis + " ms" : ", no health checks");
+        return out.append(", ").append(maxIdle).append(" kept-alive connections per backend)").toString();
+    }
+}
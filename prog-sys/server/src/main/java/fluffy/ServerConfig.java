@@ -0,0 +1,176 @@
+package fluffy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+
+// Configuration immuable du serveur, remplacée d'un bloc à chaque rechargement
+//
+// Une requête lit l'instance courante une seule fois et s'y tient jusqu'au bout. Un rechargement
+// reprend les composants (caches, pool PHP) dont les clés n'ont pas changé, pour garder leur contenu.
+final class ServerConfig {
+    static final String FILE_NAME = "server-config.properties";
+
+    // Moteur d'écoute : appliqué avec un changement de port, sinon au prochain démarrage
+    private static final String[] LISTENER_KEYS = { "server.engine", "server.nio." };
+    // Clés lues une seule fois au démarrage
+    private static final String[] STARTUP_KEYS = { "server.executor.mode", "server.executor.queue",
+            "server.executor.rejection", "server.executor.stats.interval", "metrics.", "access.log.",
+            "browser.enabled" };
+
+    final Properties properties;
+    final int port;
+    final Path documentRoot;
+    final RequestDispatch dispatch;
+    final String phpInterpreter;
+    // L'interpréteur fait précéder sa sortie d'en-têtes CGI (php-cgi) ; php en ligne de commande non
+    final boolean phpProcessCgi;
+    final int phpTimeout;
+    final int phpBufferSize;
+    final long phpMaxBody;
+    final boolean phpFastCgiFallback;
+    final int listingPageSize;
+    final int executorThreads;
+    final int drainTimeout;
+
+    // Composants optionnels ; null si désactivés
+    final PhpResponseCache phpResponseCache;
+    final StaticFileCache staticFileCache;
+    final Compression compression;
+    final DirectoryListingCache listingCache;
+    final AdmissionControl admission;
+    final ReverseProxy proxy;
+    final PhpWorkerPool phpWorkerPool;
+
+    private ServerConfig(Properties properties, ServerConfig previous, boolean startWorkers) throws IOException {
+        this.properties = properties;
+        port = Integer.parseInt(properties.getProperty("server.port", "8000").trim());
+        documentRoot = Paths.get(properties.getProperty("document.root", "./www").trim()).toAbsolutePath();
+        dispatch = RequestDispatch.fromConfig(properties);
+        phpInterpreter = Paths.get(properties.getProperty("php.interpreter", "php").trim()).toString();
+        String interpreterName = Paths.get(phpInterpreter).getFileName().toString().toLowerCase(Locale.ROOT);
+        phpProcessCgi = Boolean.parseBoolean(properties.getProperty("php.process.cgi",
+                String.valueOf(interpreterName.startsWith("php-cgi"))).trim());
+        phpTimeout = Integer.parseInt(properties.getProperty("php.timeout", "10").trim());
+        phpBufferSize = Integer.parseInt(properties.getProperty("php.buffer.size", "8192").trim());
+        phpMaxBody = Long.parseLong(properties.getProperty("php.max.body", "8388608").trim());
+        phpFastCgiFallback = Boolean.parseBoolean(properties.getProperty("php.fastcgi.fallback", "true").trim());
+        listingPageSize = Integer.parseInt(properties.getProperty("listing.page.size", "1000").trim());
+        executorThreads = Integer.parseInt(properties.getProperty("server.executor.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 4)).trim());
+        drainTimeout = Integer.parseInt(properties.getProperty("server.drain.timeout", "10").trim());
+
+        // Créer le répertoire racine s'il n'existe pas
+        Files.createDirectories(documentRoot);
+
+        phpResponseCache = previous != null && unchanged(previous, "php.cache.")
+                ? previous.phpResponseCache : PhpResponseCache.fromConfig(properties);
+        staticFileCache = previous != null && unchanged(previous, "static.cache.")
+                ? previous.staticFileCache : StaticFileCache.fromConfig(properties);
+        compression = previous != null && unchanged(previous, "compression.")
+                ? previous.compression : Compression.fromConfig(properties);
+        listingCache = previous != null && unchanged(previous, "listing.cache.")
+                ? previous.listingCache : DirectoryListingCache.fromConfig(properties);
+        // Repris tel quel pour garder les seaux des clients et la limite adaptative
+        admission = previous != null && unchanged(previous, "admission.", "server.executor.threads")
+                ? previous.admission : AdmissionControl.fromConfig(properties);
+        // Repris tel quel pour garder les connexions ouvertes et l'état de santé des backends
+        if (!startWorkers) {
+            proxy = null;
+        } else if (previous != null && unchanged(previous, "proxy.")) {
+            proxy = previous.proxy;
+        } else {
+            proxy = ReverseProxy.fromConfig(properties);
+        }
+        // Le pool est créé en dernier : une erreur plus haut ne laisse aucun processus derrière elle
+        if (!startWorkers) {
+            phpWorkerPool = null;
+        } else if (previous != null && poolUnchanged(previous)) {
+            phpWorkerPool = previous.phpWorkerPool;
+        } else {
+            phpWorkerPool = PhpWorkerPool.fromConfig(properties);
+        }
+    }
+
+    static Properties read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file.toFile())) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    // Première configuration, ou nouvelle version reprenant les composants inchangés de la précédente
+    static ServerConfig create(Properties properties, ServerConfig previous) throws IOException {
+        return new ServerConfig(properties, previous, true);
+    }
+
+    // Sans pool FastCGI ni proxy : pour appeler RootHandler hors serveur (benchmarks)
+    static ServerConfig createWithoutWorkers(Properties properties) throws IOException {
+        return new ServerConfig(properties, null, false);
+    }
+
+    // Clés modifiées qui ne prendront effet qu'au prochain démarrage
+    List<String> startupKeysChanged(ServerConfig previous) {
+        List<String> changed = new ArrayList<>();
+        for (String key : changedKeys(previous)) {
+            if (matches(key, STARTUP_KEYS) || (port == previous.port && matches(key, LISTENER_KEYS))) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    List<String> changedKeys(ServerConfig previous) {
+        List<String> changed = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!Objects.equals(properties.getProperty(key), previous.properties.getProperty(key))) {
+                changed.add(key);
+            }
+        }
+        for (String key : previous.properties.stringPropertyNames()) {
+            if (!properties.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        changed.sort(null);
+        return changed;
+    }
+
+    // php.fastcgi.fallback concerne RootHandler, pas les workers
+    private boolean poolUnchanged(ServerConfig previous) {
+        for (String key : changedKeys(previous)) {
+            if (matches(key, "php.fastcgi.", "php.timeout") && !key.equals("php.fastcgi.fallback")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Vrai si aucune clé commençant par l'un des préfixes n'a changé
+    private boolean unchanged(ServerConfig previous, String... prefixes) {
+        for (String key : changedKeys(previous)) {
+            if (matches(key, prefixes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String key, String... prefixes) {
+        for (String prefix : prefixes) {
+            if (prefix.endsWith(".") ? key.startsWith(prefix) : key.equals(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,145 @@
+package fluffy;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache LRU des petits fichiers statiques, borné en octets
+class StaticFileCache {
+    static final class Entry {
+        final byte[] content;
+        final String contentType;
+        final long lastModified;
+        // Validateurs calculés une fois par version du fichier
+        final String etag;
+        final String lastModifiedHeader;
+
+        Entry(byte[] content, String contentType, long lastModified) {
+            this.content = content;
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+            this.etag = ConditionalRequest.etag(content.length, lastModified);
+            this.lastModifiedHeader = ConditionalRequest.httpDate(lastModified);
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    // Ordre d'accès : le premier élément est le moins récemment utilisé
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+    // Incrémenté à chaque invalidation : une lecture commencée avant n'est pas mise en cache
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    StaticFileCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    // Renvoie null si le cache est désactivé dans la configuration
+    static StaticFileCache fromConfig(Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("static.cache.enabled", "true").trim())) {
+            return null;
+        }
+        long maxBytes = Long.parseLong(config.getProperty("static.cache.max.bytes", "67108864").trim());
+        long maxEntryBytes = Long.parseLong(config.getProperty("static.cache.max.entry.bytes", "1048576").trim());
+        return new StaticFileCache(maxBytes, maxEntryBytes);
+    }
+
+    synchronized Entry get(Path path) {
+        Entry entry = entries.get(path);
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    boolean accepts(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    synchronized void put(Path path, Entry entry, long readGeneration) {
+        if (readGeneration != generation || !accepts(entry.content.length)) {
+            return;
+        }
+        Entry previous = entries.put(path, entry);
+        if (previous != null) {
+            currentBytes -= previous.content.length;
+        }
+        currentBytes += entry.content.length;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().content.length;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Retire le chemin et tout ce qu'il contient (dossier renommé ou supprimé)
+    synchronized void invalidate(Path changed) {
+        generation++;
+        Entry removed = entries.remove(changed);
+        if (removed != null) {
+            currentBytes -= removed.content.length;
+            invalidations.incrementAndGet();
+            return;
+        }
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Entry> entry = it.next();
+            if (entry.getKey().startsWith(changed)) {
+                currentBytes -= entry.getValue().content.length;
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    long getInvalidations() {
+        return invalidations.get();
+    }
+
+    synchronized long getSizeBytes() {
+        return currentBytes;
+    }
+
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    String describe() {
+        return String.format("static cache (%d bytes, %d bytes per entry)", maxBytes, maxEntryBytes);
+    }
+
+    String stats() {
+        return String.format("Static cache: entries=%d bytes=%d hits=%d misses=%d evictions=%d invalidations=%d",
+                getEntryCount(), getSizeBytes(), getHits(), getMisses(), getEvictions(), getInvalidations());
+    }
+}
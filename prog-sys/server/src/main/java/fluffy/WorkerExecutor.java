@@ -0,0 +1,202 @@
+package fluffy;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Exécuteur des requêtes HTTP, choisi dans server-config.properties
+public class WorkerExecutor implements Executor {
+    enum Mode {
+        DISPATCHER, POOL, VIRTUAL
+    }
+
+    // Vrai pendant qu'une requête rejetée est exécutée sur le thread appelant
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final Mode mode;
+    private final boolean callerRuns;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService virtualExecutor;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private ScheduledExecutorService statsReporter;
+
+    private WorkerExecutor(Mode mode, int threads, int queueSize, boolean callerRuns) {
+        this.callerRuns = callerRuns;
+        this.queueCapacity = queueSize;
+
+        ExecutorService virtual = null;
+        if (mode == Mode.VIRTUAL) {
+            virtual = newVirtualThreadExecutor();
+            if (virtual == null) {
+                System.err.println("Virtual threads are not available on this JVM, falling back to a thread pool");
+                mode = Mode.POOL;
+            }
+        }
+        this.mode = mode;
+        this.virtualExecutor = virtual;
+
+        if (mode == Mode.POOL) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "http-worker-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+        } else {
+            pool = null;
+        }
+    }
+
+    static WorkerExecutor fromConfig(Properties config) {
+        Mode mode = Mode.valueOf(config.getProperty("server.executor.mode", "pool").trim().toUpperCase());
+        int threads = Integer.parseInt(config.getProperty("server.executor.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 4)).trim());
+        int queueSize = Integer.parseInt(config.getProperty("server.executor.queue", "256").trim());
+        boolean callerRuns = "caller-runs".equalsIgnoreCase(
+                config.getProperty("server.executor.rejection", "reject").trim());
+
+        WorkerExecutor executor = new WorkerExecutor(mode, threads, queueSize, callerRuns);
+
+        int statsInterval = Integer.parseInt(config.getProperty("server.executor.stats.interval", "0").trim());
+        if (statsInterval > 0) {
+            executor.startStatsReporter(statsInterval);
+        }
+        return executor;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() n'existe qu'à partir de Java 21
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Runnable tracked = () -> {
+            activeWorkers.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                activeWorkers.decrementAndGet();
+                completedTasks.incrementAndGet();
+            }
+        };
+
+        try {
+            switch (mode) {
+                case POOL:
+                    pool.execute(tracked);
+                    break;
+                case VIRTUAL:
+                    virtualExecutor.execute(tracked);
+                    break;
+                default:
+                    tracked.run();
+            }
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            if (callerRuns) {
+                tracked.run();
+                return;
+            }
+            // Le handler répond 503 immédiatement sur le thread du dispatcher
+            REJECTED.set(Boolean.TRUE);
+            try {
+                task.run();
+            } finally {
+                REJECTED.remove();
+            }
+        }
+    }
+
+    static boolean isRejectedRequest() {
+        return REJECTED.get() != null;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getQueueDepth() {
+        return pool != null ? pool.getQueue().size() : 0;
+    }
+
+    int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    long getCompletedCount() {
+        return completedTasks.get();
+    }
+
+    long getRejectedCount() {
+        return rejectedTasks.get();
+    }
+
+    // Taille du pool modifiée à chaud ; sans effet pour les autres modes
+    void resize(int threads) {
+        if (pool == null || threads < 1 || threads == pool.getMaximumPoolSize()) {
+            return;
+        }
+        // L'ordre évite un instant où le minimum dépasserait le maximum
+        if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        } else {
+            pool.setCorePoolSize(threads);
+            pool.setMaximumPoolSize(threads);
+        }
+    }
+
+    String describe() {
+        switch (mode) {
+            case POOL:
+                return String.format("pool (%d threads, queue %d, rejection=%s)",
+                        pool.getMaximumPoolSize(), queueCapacity,
+                        callerRuns ? "caller-runs" : "reject");
+            case VIRTUAL:
+                return "virtual (one virtual thread per request)";
+            default:
+                return "dispatcher (requests run on the server thread)";
+        }
+    }
+
+    String stats() {
+        return String.format("Executor: active=%d queued=%d completed=%d rejected=%d",
+                getActiveWorkers(), getQueueDepth(), getCompletedCount(), getRejectedCount());
+    }
+
+    private void startStatsReporter(int intervalSeconds) {
+        statsReporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "executor-stats");
+            t.setDaemon(true);
+            return t;
+        });
+        statsReporter.scheduleAtFixedRate(() -> System.out.println(stats()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    void shutdown() {
+        if (statsReporter != null) {
+            statsReporter.shutdownNow();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package fluffy;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+    private static final InetSocketAddress CLIENT = new InetSocketAddress(InetAddress.getLoopbackAddress(), 40000);
+
+    @Test
+    void rejectsAboveTheConcurrencyLimit() {
+        AdmissionControl admission = AdmissionControl.fromConfig(config("admission.concurrency.static", "2"));
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        assertEquals(503, admission.admit(CLIENT, Metrics.Route.STATIC).status);
+        // Les autres types de traitement ne sont pas limités
+        assertNull(admission.admit(CLIENT, Metrics.Route.PHP));
+
+        admission.release(Metrics.Route.STATIC, 1_000_000);
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        assertEquals(1, admission.getOverloaded());
+    }
+
+    @Test
+    void rateLimitsEachClient() {
+        // Un jeton par heure : seule la rafale passe pendant le test
+        Properties config = config("admission.rate.static", "0.0003");
+        config.setProperty("admission.burst.static", "2");
+        AdmissionControl admission = AdmissionControl.fromConfig(config);
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        AdmissionControl.Rejection rejection = admission.admit(CLIENT, Metrics.Route.STATIC);
+        assertEquals(429, rejection.status);
+        assertTrue(rejection.retryAfterSeconds > 3000, "Retry-After " + rejection.retryAfterSeconds);
+
+        // Autre adresse : son propre seau
+        InetSocketAddress other = new InetSocketAddress("192.0.2.1", 40000);
+        assertNull(admission.admit(other, Metrics.Route.STATIC));
+        assertEquals(1, admission.getRateLimited());
+    }
+
+    @Test
+    void overloadDoesNotConsumeTheClientRate() {
+        Properties config = config("admission.concurrency.static", "1");
+        config.setProperty("admission.rate.static", "0.0003");
+        config.setProperty("admission.burst.static", "2");
+        AdmissionControl admission = AdmissionControl.fromConfig(config);
+
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        // Refus 503 : le jeton pris pour cette requête est rendu
+        for (int i = 0; i < 5; i++) {
+            assertEquals(503, admission.admit(CLIENT, Metrics.Route.STATIC).status);
+        }
+        admission.release(Metrics.Route.STATIC, 1_000_000);
+
+        assertNull(admission.admit(CLIENT, Metrics.Route.STATIC));
+        admission.release(Metrics.Route.STATIC, 1_000_000);
+        assertEquals(429, admission.admit(CLIENT, Metrics.Route.STATIC).status);
+    }
+
+    @Test
+    void isDisabledByDefault() {
+        assertNull(AdmissionControl.fromConfig(new Properties()));
+    }
+
+    private static Properties config(String key, String value) {
+        Properties config = new Properties();
+        config.setProperty("admission.enabled", "true");
+        config.setProperty(key, value);
+        return config;
+    }
+}
@@ -0,0 +1,126 @@
+package fluffy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangesTest {
+    private static final long SIZE = 1000;
+
+    @Test
+    void parsesAClosedRange() {
+        assertRanges("0-99", ByteRanges.parse("bytes=0-99", SIZE));
+        assertRanges("500-500", ByteRanges.parse("bytes=500-500", SIZE));
+        assertRanges("0-1", ByteRanges.parse("BYTES=0-1", SIZE));
+        // Fin au-delà du fichier : ramenée au dernier octet
+        assertRanges("900-999", ByteRanges.parse("bytes=900-5000", SIZE));
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertRanges("900-999", ByteRanges.parse("bytes=-100", SIZE));
+        assertRanges("999-999", ByteRanges.parse("bytes=-1", SIZE));
+        // Suffixe plus long que le fichier : le fichier entier
+        assertRanges("0-999", ByteRanges.parse("bytes=-5000", SIZE));
+    }
+
+    @Test
+    void parsesOpenEndedRanges() {
+        assertRanges("0-999", ByteRanges.parse("bytes=0-", SIZE));
+        assertRanges("990-999", ByteRanges.parse("bytes=990-", SIZE));
+        assertRanges("999-999", ByteRanges.parse("bytes=999-", SIZE));
+    }
+
+    @Test
+    void keepsDisjointRangesInOrder() {
+        assertRanges("0-9,100-109,990-999", ByteRanges.parse("bytes=100-109, -10, 0-9", SIZE));
+    }
+
+    @Test
+    void mergesOverlappingAndAdjacentRanges() {
+        assertRanges("0-199", ByteRanges.parse("bytes=0-99,50-199", SIZE));
+        assertRanges("0-199", ByteRanges.parse("bytes=100-199,0-99", SIZE));
+        assertRanges("0-999", ByteRanges.parse("bytes=0-,-10", SIZE));
+        assertRanges("10-20", ByteRanges.parse("bytes=10-20,12-15", SIZE));
+        assertRanges("0-9,11-19", ByteRanges.parse("bytes=0-9,11-19", SIZE));
+    }
+
+    @Test
+    void unsatisfiableRangesGiveAnEmptyList() {
+        // Liste vide : réponse 416
+        assertEquals(List.of(), ByteRanges.parse("bytes=1000-", SIZE));
+        assertEquals(List.of(), ByteRanges.parse("bytes=1000-1999", SIZE));
+        assertEquals(List.of(), ByteRanges.parse("bytes=-0", SIZE));
+        assertEquals(List.of(), ByteRanges.parse("bytes=0-10", 0));
+        assertEquals(List.of(), ByteRanges.parse("bytes=-10", 0));
+        // Une plage satisfiable parmi d'autres suffit
+        assertRanges("0-9", ByteRanges.parse("bytes=2000-3000,0-9", SIZE));
+    }
+
+    @Test
+    void malformedHeadersAreIgnored() {
+        // null : en-tête ignoré, réponse 200 complète
+        assertNull(ByteRanges.parse(null, SIZE));
+        assertNull(ByteRanges.parse("items=0-10", SIZE));
+        assertNull(ByteRanges.parse("bytes=", SIZE));
+        assertNull(ByteRanges.parse("bytes=10", SIZE));
+        assertNull(ByteRanges.parse("bytes=-", SIZE));
+        assertNull(ByteRanges.parse("bytes=a-b", SIZE));
+        assertNull(ByteRanges.parse("bytes=20-10", SIZE));
+        assertNull(ByteRanges.parse("bytes=0-9,x", SIZE));
+        assertNull(ByteRanges.parse("bytes=0-99999999999999999999", SIZE));
+    }
+
+    @Test
+    void tooManyRangesAreIgnored() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i < 17; i++) {
+            header.append(',').append(i * 10).append('-').append(i * 10);
+        }
+        assertNull(ByteRanges.parse(header.toString(), SIZE));
+        assertEquals(16, ByteRanges.parse(header.substring(0, header.lastIndexOf(",")), SIZE).size());
+    }
+
+    @Test
+    void ifRangeComparesEtagsStrongly() {
+        String etag = "\"3e8-18c0a1b2c3d\"";
+        assertTrue(ByteRanges.ifRangeMatches(etag, etag, 0));
+        assertTrue(ByteRanges.ifRangeMatches(" " + etag + " ", etag, 0));
+        assertFalse(ByteRanges.ifRangeMatches("\"other\"", etag, 0));
+        // Un ETag faible ne correspond jamais, même identique
+        assertFalse(ByteRanges.ifRangeMatches("W/" + etag, etag, 0));
+        assertFalse(ByteRanges.ifRangeMatches("W/" + etag, "W/" + etag, 0));
+    }
+
+    @Test
+    void ifRangeComparesDatesToTheSecond() {
+        long lastModified = Instant.parse("2024-03-01T12:00:00.750Z").toEpochMilli();
+        String etag = "\"abc\"";
+        assertTrue(ByteRanges.ifRangeMatches(httpDate(lastModified), etag, lastModified));
+        assertFalse(ByteRanges.ifRangeMatches(httpDate(lastModified - 1000), etag, lastModified));
+        assertFalse(ByteRanges.ifRangeMatches(httpDate(lastModified + 1000), etag, lastModified));
+        assertFalse(ByteRanges.ifRangeMatches("yesterday", etag, lastModified));
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+
+    // Plages attendues sous la forme "début-fin,début-fin"
+    private static void assertRanges(String expected, List<ByteRanges.Range> ranges) {
+        assertNotNull(ranges);
+        StringBuilder actual = new StringBuilder();
+        for (ByteRanges.Range range : ranges) {
+            if (actual.length() > 0) {
+                actual.append(',');
+            }
+            actual.append(range.start).append('-').append(range.end);
+        }
+        assertEquals(expected, actual.toString());
+    }
+}
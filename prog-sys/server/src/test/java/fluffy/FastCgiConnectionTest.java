@@ -0,0 +1,95 @@
+package fluffy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastCgiConnectionTest {
+    private FastCgiStub stub;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        // Renvoie l'entrée standard, une ligne d'erreur et le code de sortie demandé par le paramètre EXIT
+        stub = new FastCgiStub(request -> new FastCgiStub.Response(request.stdin,
+                "warning\n".getBytes(StandardCharsets.UTF_8),
+                Integer.parseInt(request.params.getOrDefault("EXIT", "0"))));
+    }
+
+    @AfterEach
+    void stopStub() throws Exception {
+        stub.close();
+    }
+
+    @Test
+    void framesParamsStdinAndResponseStreams() throws Exception {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("SCRIPT_FILENAME", "/var/www/index.php");
+        // Au-delà de 127 octets, nom et valeur sont codés sur quatre octets
+        params.put("HTTP_COOKIE", "x".repeat(300));
+        params.put("EXIT", "3");
+        // Plus grand qu'un enregistrement (65 535 octets) : découpé côté client, recollé par le stub
+        byte[] body = new byte[150_000];
+        new Random(42).nextBytes(body);
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int exitCode;
+        try (FastCgiConnection connection = new FastCgiConnection("127.0.0.1", stub.getPort(), 1000, 2000)) {
+            exitCode = connection.execute(params, new ByteArrayInputStream(body), stdout, stderr);
+        }
+
+        assertEquals(3, exitCode);
+        assertArrayEquals(body, stdout.toByteArray());
+        assertEquals("warning\n", stderr.toString(StandardCharsets.UTF_8));
+        assertTrue(stub.getProtocolErrors().isEmpty(), () -> stub.getProtocolErrors().toString());
+
+        FastCgiStub.Request received = stub.getRequests().get(0);
+        assertEquals(params, received.params);
+        assertEquals(1, received.role, "RESPONDER role");
+        assertEquals(1, received.flags & 1, "FCGI_KEEP_CONN");
+        assertTrue(received.stdinRecords >= 3, "stdin split into records of at most 65535 bytes");
+    }
+
+    @Test
+    void reusesTheConnectionBetweenRequests() throws Exception {
+        try (FastCgiConnection connection = new FastCgiConnection("127.0.0.1", stub.getPort(), 1000, 2000)) {
+            for (int i = 0; i < 3; i++) {
+                ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                byte[] body = ("request " + i).getBytes(StandardCharsets.UTF_8);
+                assertEquals(0, connection.execute(Map.of(), new ByteArrayInputStream(body), stdout,
+                        new ByteArrayOutputStream()));
+                assertEquals("request " + i, stdout.toString(StandardCharsets.UTF_8));
+            }
+            assertTrue(connection.ping());
+        }
+        assertEquals(1, stub.getConnections());
+        assertTrue(stub.getProtocolErrors().isEmpty(), () -> stub.getProtocolErrors().toString());
+    }
+
+    @Test
+    void sendsAnEmptyStdinWithoutBody() throws Exception {
+        try (FastCgiConnection connection = new FastCgiConnection("127.0.0.1", stub.getPort(), 1000, 2000)) {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            assertEquals(0, connection.execute(Map.of("A", "1"), null, stdout, new ByteArrayOutputStream()));
+            assertEquals(0, stdout.size());
+        }
+        assertEquals(0, stub.getRequests().get(0).stdin.length);
+    }
+
+    @Test
+    void pingFailsWhenTheResponderDoesNotAnswer() throws Exception {
+        stub.setFailHealthChecks(true);
+        try (FastCgiConnection connection = new FastCgiConnection("127.0.0.1", stub.getPort(), 1000, 2000)) {
+            assertFalse(connection.ping());
+        }
+    }
+}
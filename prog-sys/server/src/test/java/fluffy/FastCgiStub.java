@@ -0,0 +1,281 @@
+package fluffy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Répondeur FastCGI minimal dans le processus de test, à la place de php-cgi
+//
+// Vérifie au passage le découpage des enregistrements envoyés (version, identifiant, remplissage)
+// et répond à chaque requête avec ce que renvoie le handler : sortie, erreurs et code de sortie.
+final class FastCgiStub implements Closeable {
+    static final int BEGIN_REQUEST = 1;
+    static final int END_REQUEST = 3;
+    static final int PARAMS = 4;
+    static final int STDIN = 5;
+    static final int STDOUT = 6;
+    static final int STDERR = 7;
+    static final int GET_VALUES = 9;
+    static final int GET_VALUES_RESULT = 10;
+
+    // Requête telle que reçue
+    static final class Request {
+        final Map<String, String> params;
+        final byte[] stdin;
+        final int role;
+        final int flags;
+        final int stdinRecords;
+
+        Request(Map<String, String> params, byte[] stdin, int role, int flags, int stdinRecords) {
+            this.params = params;
+            this.stdin = stdin;
+            this.role = role;
+            this.flags = flags;
+            this.stdinRecords = stdinRecords;
+        }
+    }
+
+    // Réponse à renvoyer
+    static final class Response {
+        final byte[] stdout;
+        final byte[] stderr;
+        final int exitCode;
+
+        Response(byte[] stdout, byte[] stderr, int exitCode) {
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.exitCode = exitCode;
+        }
+    }
+
+    private final ServerSocket server;
+    private final Function<Request, Response> handler;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final List<Throwable> protocolErrors = new CopyOnWriteArrayList<>();
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger healthChecks = new AtomicInteger();
+    private volatile boolean failHealthChecks;
+
+    FastCgiStub(Function<Request, Response> handler) throws IOException {
+        this.handler = handler;
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fastcgi-stub");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    List<Request> getRequests() {
+        return requests;
+    }
+
+    List<Throwable> getProtocolErrors() {
+        return protocolErrors;
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    int getHealthChecks() {
+        return healthChecks.get();
+    }
+
+    // Vrai : les FCGI_GET_VALUES ferment la connexion au lieu d'y répondre
+    void setFailHealthChecks(boolean fail) {
+        failHealthChecks = fail;
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                sockets.add(socket);
+                connections.incrementAndGet();
+                Thread connection = new Thread(() -> serve(socket), "fastcgi-stub-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                Record begin;
+                try {
+                    begin = Record.read(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                if (begin.type == GET_VALUES) {
+                    healthChecks.incrementAndGet();
+                    if (failHealthChecks) {
+                        return;
+                    }
+                    writeRecord(out, GET_VALUES_RESULT, 0, new byte[0]);
+                    out.flush();
+                    continue;
+                }
+                check(begin.type == BEGIN_REQUEST, "expected BEGIN_REQUEST, got type " + begin.type);
+                check(begin.content.length == 8, "BEGIN_REQUEST body must be 8 bytes");
+                int requestId = begin.requestId;
+
+                ByteArrayOutputStream params = new ByteArrayOutputStream();
+                Record record;
+                while ((record = Record.read(in)).content.length > 0) {
+                    check(record.type == PARAMS, "expected PARAMS, got type " + record.type);
+                    check(record.requestId == requestId, "PARAMS for another request");
+                    params.write(record.content);
+                }
+                check(record.type == PARAMS, "params stream must end with an empty PARAMS record");
+
+                ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+                int stdinRecords = 0;
+                while ((record = Record.read(in)).content.length > 0) {
+                    check(record.type == STDIN, "expected STDIN, got type " + record.type);
+                    stdin.write(record.content);
+                    stdinRecords++;
+                }
+                check(record.type == STDIN, "stdin stream must end with an empty STDIN record");
+
+                Request request = new Request(decodeParams(params.toByteArray()), stdin.toByteArray(),
+                        ((begin.content[0] & 0xFF) << 8) | (begin.content[1] & 0xFF), begin.content[2],
+                        stdinRecords);
+                requests.add(request);
+                Response response = handler.apply(request);
+                writeStream(out, STDOUT, requestId, response.stdout);
+                if (response.stderr.length > 0) {
+                    writeStream(out, STDERR, requestId, response.stderr);
+                }
+                byte[] end = { (byte) (response.exitCode >> 24), (byte) (response.exitCode >> 16),
+                        (byte) (response.exitCode >> 8), (byte) response.exitCode, 0, 0, 0, 0 };
+                writeRecord(out, END_REQUEST, requestId, end);
+                out.flush();
+                if ((request.flags & 1) == 0) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!server.isClosed()) {
+                protocolErrors.add(e);
+            }
+        }
+    }
+
+    private void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    // Contenu découpé en enregistrements de 8 000 octets, pour que le client en recolle plusieurs
+    private static void writeStream(OutputStream out, int type, int requestId, byte[] content) throws IOException {
+        for (int offset = 0; offset < content.length; offset += 8000) {
+            int length = Math.min(8000, content.length - offset);
+            byte[] chunk = new byte[length];
+            System.arraycopy(content, offset, chunk, 0, length);
+            writeRecord(out, type, requestId, chunk);
+        }
+        writeRecord(out, type, requestId, new byte[0]);
+    }
+
+    private static void writeRecord(OutputStream out, int type, int requestId, byte[] content) throws IOException {
+        int padding = (8 - (content.length & 7)) & 7;
+        out.write(new byte[] { 1, (byte) type, (byte) (requestId >> 8), (byte) requestId,
+                (byte) (content.length >> 8), (byte) content.length, (byte) padding, 0 });
+        out.write(content);
+        out.write(new byte[padding]);
+    }
+
+    static Map<String, String> decodeParams(byte[] encoded) {
+        Map<String, String> params = new LinkedHashMap<>();
+        int[] position = { 0 };
+        while (position[0] < encoded.length) {
+            int nameLength = readLength(encoded, position);
+            int valueLength = readLength(encoded, position);
+            String name = new String(encoded, position[0], nameLength, StandardCharsets.UTF_8);
+            position[0] += nameLength;
+            String value = new String(encoded, position[0], valueLength, StandardCharsets.UTF_8);
+            position[0] += valueLength;
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static int readLength(byte[] encoded, int[] position) {
+        int first = encoded[position[0]++] & 0xFF;
+        if (first < 128) {
+            return first;
+        }
+        int length = ((first & 0x7F) << 24) | ((encoded[position[0]] & 0xFF) << 16)
+                | ((encoded[position[0] + 1] & 0xFF) << 8) | (encoded[position[0] + 2] & 0xFF);
+        position[0] += 3;
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : new ArrayList<>(sockets)) {
+            socket.close();
+        }
+    }
+
+    // Enregistrement reçu ; le remplissage doit aligner l'enregistrement sur 8 octets
+    private static final class Record {
+        final int type;
+        final int requestId;
+        final byte[] content;
+
+        private Record(int type, int requestId, byte[] content) {
+            this.type = type;
+            this.requestId = requestId;
+            this.content = content;
+        }
+
+        static Record read(DataInputStream in) throws IOException {
+            int version = in.read();
+            if (version < 0) {
+                throw new EOFException();
+            }
+            if (version != 1) {
+                throw new IllegalStateException("FastCGI version " + version);
+            }
+            int type = in.readUnsignedByte();
+            int requestId = in.readUnsignedShort();
+            int length = in.readUnsignedShort();
+            int padding = in.readUnsignedByte();
+            in.readUnsignedByte();
+            if ((length + padding) % 8 != 0) {
+                throw new IllegalStateException("Record of " + length + " bytes padded with " + padding);
+            }
+            byte[] content = new byte[length];
+            in.readFully(content);
+            in.skipNBytes(padding);
+            return new Record(type, requestId, content);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package fluffy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Échanges bruts sur la boucle locale : ce que voit un client HTTP/1.1, octet par octet
+class NioHttpServerTest {
+    private static final int BUFFER_SIZE = 4096;
+
+    private NioHttpServer server;
+    private ExecutorService executor;
+
+    // Réponse lue sur le socket
+    private static final class Response {
+        final int status;
+        final Map<String, String> headers;
+        final String body;
+
+        Response(int status, Map<String, String> headers, String body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new NioHttpServer(1, BUFFER_SIZE, 5000, 1 << 20);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // Répond "méthode chemin corps" ; /slow traîne pour qu'une requête suivante puisse la doubler
+        server.createContext("/", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] response = (exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " "
+                    + new String(body, StandardCharsets.ISO_8859_1)).trim().getBytes(StandardCharsets.ISO_8859_1);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+        });
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /slow HTTP/1.1\r\nHost: test\r\n\r\n"
+                    + "POST /echo HTTP/1.1\r\nHost: test\r\nContent-Length: 5\r\n\r\nhello"
+                    + "GET /fast HTTP/1.1\r\nHost: test\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            assertEquals("GET /slow", read(in).body);
+            assertEquals("POST /echo hello", read(in).body);
+            assertEquals("GET /fast", read(in).body);
+        }
+    }
+
+    @Test
+    void keepsTheConnectionOpenBetweenRequests() throws IOException {
+        try (Socket socket = connect()) {
+            InputStream in = socket.getInputStream();
+            for (int i = 0; i < 3; i++) {
+                send(socket, "GET /page" + i + " HTTP/1.1\r\nHost: test\r\n\r\n");
+                Response response = read(in);
+                assertEquals(200, response.status);
+                assertEquals("GET /page" + i, response.body);
+                assertNull(response.headers.get("connection"));
+            }
+
+            send(socket, "GET /last HTTP/1.1\r\nHost: test\r\nConnection: close\r\n\r\n");
+            Response response = read(in);
+            assertEquals("GET /last", response.body);
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void http10KeepsTheConnectionOnlyOnRequest() throws IOException {
+        try (Socket socket = connect()) {
+            InputStream in = socket.getInputStream();
+            send(socket, "GET /a HTTP/1.0\r\nConnection: keep-alive\r\n\r\n");
+            Response response = read(in);
+            assertEquals("keep-alive", response.headers.get("connection"));
+            send(socket, "GET /b HTTP/1.0\r\n\r\n");
+            response = read(in);
+            assertEquals("GET /b", response.body);
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void rejectsAMalformedRequestLine() throws IOException {
+        assertRejected("GARBAGE\r\n\r\n", 400);
+        assertRejected("GET /\r\n\r\n", 400);
+        assertRejected("GET / HTTP/2.0\r\n\r\n", 400);
+        assertRejected("GET /a b HTTP/1.1\r\n\r\n", 400);
+        assertRejected("GET / HTTP/1.1\r\nno colon here\r\n\r\n", 400);
+        assertRejected("POST / HTTP/1.1\r\nContent-Length: ten\r\n\r\n", 400);
+    }
+
+    @Test
+    void rejectsAnOversizeHeaderBlock() throws IOException {
+        // Tampon de la connexion rempli sans fin d'en-têtes
+        String head = "GET / HTTP/1.1\r\nX-Filler: ";
+        assertRejected(head + "x".repeat(BUFFER_SIZE - head.length()), 431);
+
+        StringBuilder many = new StringBuilder("GET / HTTP/1.1\r\n");
+        for (int i = 0; i <= 100; i++) {
+            many.append("X-").append(i).append(": 1\r\n");
+        }
+        assertRejected(many.append("\r\n").toString(), 431);
+    }
+
+    @Test
+    void rejectsTransferEncoding() throws IOException {
+        assertRejected("POST / HTTP/1.1\r\nHost: test\r\nTransfer-Encoding: chunked\r\n\r\n", 501);
+    }
+
+    @Test
+    void rejectsABodyAboveTheLimit() throws IOException {
+        assertRejected("POST / HTTP/1.1\r\nHost: test\r\nContent-Length: " + ((1 << 20) + 1) + "\r\n\r\n", 413);
+    }
+
+    @Test
+    void aClientThatStopsReadingDoesNotStallTheLoop() throws Exception {
+        // Requêtes à 100-continue : la boucle écrit la ligne intermédiaire, le handler la réponse 204. Les requêtes
+        // portent le numéro de l'essai : un handler d'un essai abandonné ne fausse pas le suivant.
+        Semaphore started = new Semaphore(0);
+        Semaphore done = new Semaphore(0);
+        AtomicInteger current = new AtomicInteger();
+        server.createContext("/continue", exchange -> {
+            boolean counted = Integer.parseInt(exchange.getRequestURI().getQuery()) == current.get();
+            if (counted) {
+                started.release();
+            }
+            exchange.getRequestBody().readAllBytes();
+            // Taille variable d'un essai à l'autre : déplace le point où les tampons se remplissent
+            exchange.getResponseHeaders().set("X-Pad", "p".repeat(1 + current.get() * 7 % 64));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.getResponseBody().close();
+            if (counted) {
+                done.release();
+            }
+        });
+
+        // Le client ne lit rien : ses tampons se remplissent, pendant une écriture du handler ou de la boucle.
+        // Seul le second cas nous intéresse ; dans le premier, nouvel essai sur une autre connexion.
+        for (int attempt = 0; attempt < 50; attempt++) {
+            current.set(attempt);
+            started.drainPermits();
+            done.drainPermits();
+            String head = "POST /continue?" + attempt + " HTTP/1.1\r\nHost: test\r\nExpect: 100-continue\r\n"
+                    + "Content-Length: 1\r\n\r\n";
+            try (Socket stalled = new Socket()) {
+                stalled.setReceiveBufferSize(2048);
+                stalled.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                        server.getAddress().getPort()));
+                boolean loopWriteBlocked = false;
+                while (true) {
+                    send(stalled, head);
+                    if (!started.tryAcquire(300, TimeUnit.MILLISECONDS)) {
+                        // 100 Continue pas parti : la requête attend que le socket redevienne disponible
+                        loopWriteBlocked = true;
+                        break;
+                    }
+                    send(stalled, "x");
+                    if (!done.tryAcquire(300, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                }
+                if (!loopWriteBlocked) {
+                    continue;
+                }
+
+                // Même boucle (une seule) : une autre connexion est servie sans attendre le délai d'inactivité
+                try (Socket other = connect()) {
+                    other.setSoTimeout(2000);
+                    send(other, "GET /other HTTP/1.1\r\nHost: test\r\n\r\n");
+                    assertEquals("GET /other", read(other.getInputStream()).body);
+                }
+
+                // Le client reprend sa lecture : 100 Continue part, puis la requête en attente est lancée
+                stalled.setSoTimeout(100);
+                InputStream in = stalled.getInputStream();
+                byte[] sink = new byte[65536];
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (!started.tryAcquire() && System.nanoTime() < deadline) {
+                    try {
+                        in.read(sink);
+                    } catch (SocketTimeoutException e) {
+                        // Rien de plus pour l'instant
+                    }
+                }
+                assertTrue(System.nanoTime() < deadline, "deferred request never dispatched");
+                return;
+            }
+        }
+        fail("the send buffer never filled during a write from the event loop");
+    }
+
+    // Réponse d'erreur puis fermeture de la connexion
+    private void assertRejected(String request, int status) throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, request);
+            InputStream in = socket.getInputStream();
+            Response response = read(in);
+            assertEquals(status, response.status, request);
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getAddress().getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    // Statut, en-têtes (noms en minuscules) et corps délimité par Content-Length
+    private static Response read(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        assertTrue(statusLine.startsWith("HTTP/1.1 "), statusLine);
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        int length = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+        byte[] body = in.readNBytes(length);
+        assertEquals(length, body.length, "truncated body");
+        return new Response(status, headers, new String(body, StandardCharsets.ISO_8859_1));
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("connection closed");
+            }
+            if (c != '\r') {
+                line.write(c);
+            }
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,173 @@
+package fluffy;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Les workers sont des processus factices (sleep) : le stub FastCGI répond à leur place sur leur port
+@DisabledOnOs(OS.WINDOWS)
+class PhpWorkerPoolTest {
+    @TempDir
+    Path directory;
+
+    private FastCgiStub stub;
+    private Path sleeper;
+    private PhpWorkerPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new FastCgiStub(request -> new FastCgiStub.Response(
+                ("Content-type: text/plain\r\n\r\nfrom fastcgi " + request.params.get("REQUEST_METHOD"))
+                        .getBytes(StandardCharsets.UTF_8), new byte[0], 0));
+        sleeper = script("fake-php-cgi", "exec sleep 600");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        stub.close();
+    }
+
+    @Test
+    void recyclesWorkersAfterMaxRequests() throws IOException {
+        Properties config = poolConfig();
+        config.setProperty("php.fastcgi.pool.min", "0");
+        config.setProperty("php.fastcgi.max.requests", "2");
+        pool = PhpWorkerPool.fromConfig(config);
+        AtomicInteger spawns = new AtomicInteger();
+        pool.setSpawnListener(nanos -> spawns.incrementAndGet());
+
+        for (int i = 0; i < 5; i++) {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            assertEquals(0, pool.execute(Map.of("REQUEST_METHOD", "GET"),
+                    new ByteArrayInputStream(new byte[0]), stdout, new ByteArrayOutputStream()));
+            assertTrue(stdout.toString(StandardCharsets.UTF_8).endsWith("from fastcgi GET"));
+        }
+
+        // Requêtes 1-2, 3-4 puis 5 : trois workers successifs, chacun avec sa connexion
+        assertEquals(3, spawns.get());
+        assertEquals(3, stub.getConnections());
+        assertEquals(2, pool.getRecycledCount());
+        assertEquals(1, pool.getSize());
+        assertTrue(stub.getProtocolErrors().isEmpty(), () -> stub.getProtocolErrors().toString());
+    }
+
+    @Test
+    void replacesWorkersFailingTheirHealthCheck() throws Exception {
+        Properties config = poolConfig();
+        config.setProperty("php.fastcgi.pool.min", "1");
+        config.setProperty("php.fastcgi.health.interval", "1");
+        pool = PhpWorkerPool.fromConfig(config);
+        pool.execute(Map.of("REQUEST_METHOD", "GET"), null, new ByteArrayOutputStream(),
+                new ByteArrayOutputStream());
+        assertEquals(0, pool.getRecycledCount());
+
+        stub.setFailHealthChecks(true);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (pool.getRecycledCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        stub.setFailHealthChecks(false);
+        assertTrue(pool.getRecycledCount() >= 1, "worker evicted after a failed FCGI_GET_VALUES");
+
+        // Remplacé par un nouveau worker, qui répond normalement
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        assertEquals(0, pool.execute(Map.of("REQUEST_METHOD", "POST"), null, stdout,
+                new ByteArrayOutputStream()));
+        assertTrue(stdout.toString(StandardCharsets.UTF_8).endsWith("from fastcgi POST"));
+        assertTrue(stub.getConnections() >= 2);
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    void servesThroughFastCgiWhenWorkersAreAvailable() throws Exception {
+        Properties config = siteConfig(sleeper);
+        assertEquals("200 from fastcgi GET", get(config, "/index.php"));
+    }
+
+    @Test
+    void fallsBackToProcessWhenNoWorkerCanStart() throws Exception {
+        Properties config = siteConfig(directory.resolve("missing-php-cgi"));
+        assertEquals("200 from process", get(config, "/index.php"));
+    }
+
+    @Test
+    void answers503WithoutFallback() throws Exception {
+        Properties config = siteConfig(directory.resolve("missing-php-cgi"));
+        config.setProperty("php.fastcgi.fallback", "false");
+        assertTrue(get(config, "/index.php").startsWith("503 "));
+    }
+
+    private Properties poolConfig() {
+        Properties config = new Properties();
+        config.setProperty("php.fastcgi.enabled", "true");
+        config.setProperty("php.fastcgi.binary", sleeper.toString());
+        config.setProperty("php.fastcgi.port", String.valueOf(stub.getPort()));
+        config.setProperty("php.fastcgi.pool.max", "1");
+        config.setProperty("php.fastcgi.health.interval", "60");
+        config.setProperty("php.fastcgi.startup.timeout", "2");
+        config.setProperty("php.timeout", "2");
+        return config;
+    }
+
+    private Properties siteConfig(Path cgiBinary) throws IOException {
+        Path root = Files.createDirectories(directory.resolve("www"));
+        Files.writeString(root.resolve("index.php"), "<?php echo 'hello'; ?>\n");
+        Properties config = poolConfig();
+        config.setProperty("php.fastcgi.binary", cgiBinary.toString());
+        config.setProperty("php.fastcgi.pool.min", "0");
+        config.setProperty("php.interpreter", script("php", "echo from process").toString());
+        config.setProperty("document.root", root.toString());
+        return config;
+    }
+
+    // Requête servie par RootHandler derrière un serveur du JDK sur la boucle locale ; "statut corps"
+    private String get(Properties properties, String path) throws Exception {
+        ServerConfig config = ServerConfig.create(properties, null);
+        pool = config.phpWorkerPool;
+        ServerConfig previous = NetworkHttpServer.configure(config);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new NetworkHttpServer.RootHandler());
+        server.start();
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path))
+                            .build(), HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() + " " + response.body().trim();
+        } finally {
+            server.stop(0);
+            NetworkHttpServer.configure(previous);
+        }
+    }
+
+    private Path script(String name, String command) throws IOException {
+        Path script = directory.resolve(name);
+        Files.writeString(script, "#!/bin/sh\n" + command + "\n");
+        assertTrue(script.toFile().setExecutable(true));
+        return script;
+    }
+}
@@ -0,0 +1,78 @@
+package fluffy;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDispatchTest {
+    @Test
+    void canonicalPathsTakeTheFastPath() {
+        assertEquals("", RequestDispatch.normalize("/"));
+        assertEquals("index.html", RequestDispatch.normalize("/index.html"));
+        assertEquals("docs/guide/intro.html", RequestDispatch.normalize("/docs/guide/intro.html"));
+        assertEquals("archive.tar.gz", RequestDispatch.normalize("/archive.tar.gz"));
+        assertEquals("a..b/c", RequestDispatch.normalize("/a..b/c"));
+    }
+
+    @Test
+    void dotDotThatEscapesTheRootIsRejected() {
+        // En tête, au milieu et en fin de chemin
+        assertNull(RequestDispatch.normalize("/.."));
+        assertNull(RequestDispatch.normalize("/../etc/passwd"));
+        assertNull(RequestDispatch.normalize("/docs/../../etc/passwd"));
+        assertNull(RequestDispatch.normalize("/docs/guide/../../.."));
+        assertNull(RequestDispatch.normalize("/./../x"));
+        assertNull(RequestDispatch.normalize("//../x"));
+    }
+
+    @Test
+    void dotDotInsideTheRootIsResolved() {
+        assertEquals("x", RequestDispatch.normalize("/docs/../x"));
+        assertEquals("docs/b", RequestDispatch.normalize("/docs/a/../b"));
+        assertEquals("", RequestDispatch.normalize("/docs/.."));
+        assertEquals("docs", RequestDispatch.normalize("/docs/guide/.."));
+    }
+
+    @Test
+    void emptyAndDotSegmentsAreDropped() {
+        assertEquals("etc/passwd", RequestDispatch.normalize("//etc/passwd"));
+        assertEquals("a/b", RequestDispatch.normalize("/a//b"));
+        assertEquals("a/b", RequestDispatch.normalize("/a/./b"));
+        assertEquals("a", RequestDispatch.normalize("/./a/."));
+        assertEquals("", RequestDispatch.normalize("/."));
+        assertEquals("a/b", RequestDispatch.normalize("a/b"));
+    }
+
+    @Test
+    void dotFilesAreNotDotSegments() {
+        assertEquals(".htaccess", RequestDispatch.normalize("/.htaccess"));
+        assertEquals("a/...", RequestDispatch.normalize("/a/..."));
+        assertEquals("a/..b", RequestDispatch.normalize("/a/..b"));
+    }
+
+    @Test
+    void separatorsDrivesAndNulAreRejected() {
+        assertNull(RequestDispatch.normalize("/..\\windows\\win.ini"));
+        assertNull(RequestDispatch.normalize("/docs\\..\\..\\x"));
+        assertNull(RequestDispatch.normalize("/C:/Windows/win.ini"));
+        assertNull(RequestDispatch.normalize("/file.txt::$DATA"));
+        assertNull(RequestDispatch.normalize("/index.php\0.html"));
+    }
+
+    @Test
+    void normalizedPathsStayUnderTheRoot() {
+        Path root = Paths.get("/srv/www").toAbsolutePath();
+        String[] inputs = { "/", "/a/b/../../..", "/a/./../b", "////..//..", "/a/b/c/../../../d",
+                "/.../x", "/a/%2e%2e/b", "/../../../../etc/shadow", "/a/b/./../c/." };
+        for (String input : inputs) {
+            String relative = RequestDispatch.normalize(input);
+            if (relative != null) {
+                Path resolved = root.resolve(relative).normalize();
+                assertTrue(resolved.startsWith(root), input + " resolved to " + resolved);
+            }
+        }
+    }
+}